@@ -13,6 +13,7 @@
  import org.springframework.stereotype.Component;
 
  import java.io.InputStream;
+ import java.util.ArrayList;
  import java.util.List;
 
  @Component
@@ -32,19 +33,41 @@
 
          mongoTemplate.insert(objectMapper.convertValue(root.get("vehicles"), new TypeReference<List<Vehicle>>() {}), Vehicle.class);
          mongoTemplate.insert(objectMapper.convertValue(root.get("teams"), new TypeReference<List<Team>>() {}), Team.class);
-         mongoTemplate.insert(objectMapper.convertValue(root.get("ecus"), new TypeReference<List<ECU>>() {}), ECU.class);
+         List<ECU> ecus = objectMapper.convertValue(root.get("ecus"), new TypeReference<List<ECU>>() {});
+         mongoTemplate.insert(ecus, ECU.class);
+         mongoTemplate.insert(toSamples(ecus), ECUSample.class);
          mongoTemplate.insert(objectMapper.convertValue(root.get("competitions"), new TypeReference<List<Competition>>() {}), Competition.class);
          mongoTemplate.insert(objectMapper.convertValue(root.get("events"), new TypeReference<List<Event>>() {}), Event.class);
 
          System.out.println("Done seeding MongoDB, populated database");
      }
 
+     // Seed samples are embedded per ECU in db.json but stored in the ecu_samples time-series collection
+     private List<ECUSample> toSamples(List<ECU> ecus) {
+         List<ECUSample> samples = new ArrayList<>();
+         for (ECU ecu : ecus) {
+             if (ecu.getEcuStatusList() == null) {
+                 continue;
+             }
+             for (ECUStatus status : ecu.getEcuStatusList()) {
+                 samples.add(ECUSample.of(ecu.getId(), status));
+             }
+         }
+         return samples;
+     }
+
      @PreDestroy
      public void cleanUp() {
          System.out.println("Cleaning up MongoDB");
          mongoTemplate.dropCollection(Event.class);
          mongoTemplate.dropCollection(Competition.class);
          mongoTemplate.dropCollection(ECU.class);
+         mongoTemplate.dropCollection(ECUSample.class);
+         mongoTemplate.dropCollection(ECUSampleBucket.class);
+         mongoTemplate.dropCollection(EnergyAccumulator.class);
+         mongoTemplate.dropCollection(TelemetryStats.class);
+         mongoTemplate.dropCollection(TelemetryArchive.class);
+         mongoTemplate.dropCollection(TelemetryRollup.class);
          mongoTemplate.dropCollection(Team.class);
          mongoTemplate.dropCollection(Vehicle.class);
          System.out.println("All seeded collections removed.");
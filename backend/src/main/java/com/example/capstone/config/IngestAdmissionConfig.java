@@ -0,0 +1,20 @@
+package com.example.capstone.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class IngestAdmissionConfig implements WebMvcConfigurer {
+
+    private final IngestAdmissionInterceptor ingestAdmissionInterceptor;
+
+    public IngestAdmissionConfig(IngestAdmissionInterceptor ingestAdmissionInterceptor) {
+        this.ingestAdmissionInterceptor = ingestAdmissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ingestAdmissionInterceptor).addPathPatterns("/api/ecus/bulk/**");
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.capstone.config;
+
+import com.example.capstone.service.ECUIngestContextRegistry;
+import com.example.capstone.service.IngestAdmissionControl;
+import com.example.capstone.service.IngestFlowControl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Runs IngestAdmissionControl before the bulk ingest handlers, so a rejected chunk is answered
+// with 429 before its body is read. Serials with no ECU are turned away with 404 first, so made-up
+// serials never get admission state.
+@Component
+public class IngestAdmissionInterceptor implements HandlerInterceptor {
+    private static final String ADMITTED_ATTRIBUTE = IngestAdmissionInterceptor.class.getName() + ".serialNumber";
+
+    private final IngestAdmissionControl admissionControl;
+    private final IngestFlowControl flowControl;
+    private final ECUIngestContextRegistry ingestContexts;
+
+    public IngestAdmissionInterceptor(IngestAdmissionControl admissionControl, IngestFlowControl flowControl,
+                                      ECUIngestContextRegistry ingestContexts) {
+        this.admissionControl = admissionControl;
+        this.flowControl = flowControl;
+        this.ingestContexts = ingestContexts;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String serialNumber = pathVariables == null ? null : pathVariables.get("serialNumber");
+        if (serialNumber == null) {
+            return true;
+        }
+        try {
+            // Loads the context once for a registered ECU; the handler reuses it
+            ingestContexts.get(serialNumber);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("ECU " + serialNumber + " is not registered");
+            return false;
+        }
+        IngestAdmissionControl.Outcome outcome = admissionControl.tryAdmit(serialNumber);
+        if (outcome == IngestAdmissionControl.Outcome.ADMITTED) {
+            request.setAttribute(ADMITTED_ATTRIBUTE, serialNumber);
+            return true;
+        }
+        long retryAfterMillis = admissionControl.retryAfterMillis(serialNumber, outcome);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+        // Same chunk size as the queue-full 429; the pacing is this ECU's own wait
+        response.setHeader("X-Ingest-Chunk-Size", String.valueOf(flowControl.adviseRejected().getChunkSamples()));
+        response.setHeader("X-Ingest-Pacing-Ms", String.valueOf(retryAfterMillis));
+        response.setHeader("X-Admission-Rejected", outcome.name());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Chunk from ECU " + serialNumber + " not admitted: " + outcome.name());
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object serialNumber = request.getAttribute(ADMITTED_ATTRIBUTE);
+        if (serialNumber != null) {
+            admissionControl.release((String) serialNumber);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.capstone.config;
+
+import com.example.capstone.model.ECU;
+import com.example.capstone.model.ECUSample;
+import com.example.capstone.model.ECUSampleBucket;
+import com.example.capstone.model.EnergyAccumulator;
+import com.example.capstone.model.SampleChunk;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.TelemetryArchive;
+import com.example.capstone.model.TelemetryRollup;
+import com.example.capstone.model.TelemetryStats;
+import com.example.capstone.service.ECUSampleStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class TelemetryCollectionConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final ECUSampleStore ecuSampleStore;
+
+    // Runs before DbSeeder so the samples collection exists as a time-series collection
+    // (a plain insert would silently create a regular collection instead)
+    @PostConstruct
+    public void initTelemetryCollection() {
+        if (!mongoTemplate.collectionExists(ECUSample.class)) {
+            System.out.println("[INFO] Creating time-series collection for ECU samples");
+            mongoTemplate.createCollection(ECUSample.class);
+        }
+        mongoTemplate.indexOps(ECUSample.class)
+                .ensureIndex(new Index().on("ecuId", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC));
+        mongoTemplate.indexOps(ECUSampleBucket.class)
+                .ensureIndex(new Index().on("ecuId", Sort.Direction.ASC).on("startTime", Sort.Direction.ASC)
+                        .on("endTime", Sort.Direction.ASC));
+        mongoTemplate.indexOps(EnergyAccumulator.class)
+                .ensureIndex(new Index().on("ecuId", Sort.Direction.ASC).on("eventId", Sort.Direction.ASC)
+                        .unique().named("ecu_event"));
+        mongoTemplate.indexOps(TelemetryStats.class)
+                .ensureIndex(new Index().on("ecuId", Sort.Direction.ASC).on("eventId", Sort.Direction.ASC)
+                        .unique().named("ecu_event"));
+        mongoTemplate.indexOps(TelemetryArchive.class)
+                .ensureIndex(new Index().on("ecuId", Sort.Direction.ASC).on("eventId", Sort.Direction.ASC)
+                        .unique().named("ecu_event"));
+        mongoTemplate.indexOps(TelemetryRollup.class)
+                .ensureIndex(new Index().on("ecuId", Sort.Direction.ASC).on("resolution", Sort.Direction.ASC)
+                        .on("bucketStart", Sort.Direction.ASC).unique().named("ecu_resolution_start"));
+        ensureUniqueSerialNumbers();
+    }
+
+    // Lets the register upsert rely on the database to stop two first registrations of the
+    // same ECU from both inserting
+    private void ensureUniqueSerialNumbers() {
+        try {
+            mongoTemplate.indexOps(ECU.class)
+                    .ensureIndex(new Index().on("serialNumber", Sort.Direction.ASC).unique().named("serialNumber"));
+        } catch (RuntimeException e) {
+            System.err.println("[ERROR] Could not create unique serialNumber index on ECUs (duplicate serials or an older"
+                    + " non-unique index?): " + e.getMessage());
+        }
+    }
+
+    // Moves samples still embedded in ECU documents (pre time-series layout) into the telemetry
+    // store, once every write listener is registered so statistics and energy see them too.
+    // Samples the store already has are skipped, so an ECU left half-migrated by a crash before
+    // its unset is finished on the next start without storing anything twice.
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateEmbeddedStatusLists() {
+        String ecuCollection = mongoTemplate.getCollectionName(ECU.class);
+        Query legacy = new Query(Criteria.where("ecuStatusList").exists(true));
+        for (Document ecu : mongoTemplate.find(legacy, Document.class, ecuCollection)) {
+            String ecuId = ecu.get("_id").toString();
+            List<Document> statuses = ecu.getList("ecuStatusList", Document.class, new ArrayList<>());
+            SampleSeries samples = new SampleSeries(statuses.size());
+            for (Document status : statuses) {
+                samples.add(toInstant(status.get("timestamp")).toEpochMilli(), toDouble(status.get("voltage")),
+                        toDouble(status.get("current")), toDouble(status.get("power")));
+            }
+            if (!samples.isEmpty()) {
+                ecuSampleStore.insertMissing(List.of(new SampleChunk(ecuId, samples)));
+            }
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(ecu.get("_id"))),
+                    new Update().unset("ecuStatusList"), ecuCollection);
+            System.out.println("[INFO] Migrated " + samples.size() + " embedded samples for ECU " + ecuId);
+        }
+    }
+
+    private Instant toInstant(Object value) {
+        if (value instanceof Date date) {
+            return date.toInstant();
+        }
+        return Instant.parse(value.toString());
+    }
+
+    private double toDouble(Object value) {
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.capstone.config;
+
+import com.example.capstone.service.ECUSampleStore;
+import com.example.capstone.service.TelemetryIngestPipeline;
+import com.example.capstone.service.TelemetryIngestStage;
+import com.example.capstone.service.TelemetryWriteAheadLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class TelemetryIngestConfig {
+
+    @Value("${telemetry.ingest.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${telemetry.ingest.linger-ms:5}")
+    private long lingerMillis;
+
+    @Value("${telemetry.ingest.max-batch-chunks:256}")
+    private int maxBatchChunks;
+
+    // The WAL is the shipped path; with telemetry.wal.enabled=false chunks go through the in-memory group-commit pipeline
+    @Value("${telemetry.wal.enabled:true}")
+    private boolean walEnabled;
+
+    @Value("${telemetry.wal.dir:telemetry-wal}")
+    private String walDir;
+
+    @Value("${telemetry.wal.segment-bytes:16777216}")
+    private int walSegmentBytes;
+
+    @Value("${telemetry.wal.max-backlog-chunks:200000}")
+    private int walMaxBacklogChunks;
+
+    // Closed (and flushed, or persisted to the WAL) after the web server has stopped and before Mongo is shut down
+    @Bean(destroyMethod = "close")
+    public TelemetryIngestStage telemetryIngestStage(ECUSampleStore ecuSampleStore) throws IOException {
+        if (walEnabled) {
+            System.out.println("[INFO] Telemetry ingest goes through the write-ahead log in " + Path.of(walDir).toAbsolutePath());
+            return new TelemetryWriteAheadLog(Path.of(walDir), ecuSampleStore::write, ecuSampleStore::writeRecovered, walSegmentBytes,
+                    walMaxBacklogChunks, maxBatchChunks);
+        }
+        return new TelemetryIngestPipeline(ecuSampleStore::write, queueCapacity, lingerMillis, maxBatchChunks);
+    }
+}
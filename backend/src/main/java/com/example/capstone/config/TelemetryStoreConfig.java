@@ -0,0 +1,41 @@
+package com.example.capstone.config;
+
+import com.example.capstone.service.EventWindowIndex;
+import com.example.capstone.service.MongoTelemetryStore;
+import com.example.capstone.service.SegmentFileTelemetryStore;
+import com.example.capstone.service.TelemetryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class TelemetryStoreConfig {
+
+    @Value("${telemetry.storage.backend:mongo}")
+    private String backend;
+
+    @Value("${telemetry.storage.encoding:raw}")
+    private String encoding;
+
+    @Value("${telemetry.storage.bucket-seconds:60}")
+    private long bucketSeconds;
+
+    @Value("${telemetry.storage.segments.dir:telemetry-segments}")
+    private String segmentsDir;
+
+    @Value("${telemetry.storage.segments.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Bean(destroyMethod = "close")
+    public TelemetryStore telemetryStore(MongoTemplate mongoTemplate, EventWindowIndex eventWindows) throws IOException {
+        if ("segments".equals(backend)) {
+            System.out.println("[INFO] Telemetry samples are stored in segment files in " + Path.of(segmentsDir).toAbsolutePath());
+            return new SegmentFileTelemetryStore(Path.of(segmentsDir), segmentBytes);
+        }
+        return new MongoTelemetryStore(mongoTemplate, eventWindows, encoding, bucketSeconds);
+    }
+}
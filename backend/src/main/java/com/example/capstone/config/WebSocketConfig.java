@@ -0,0 +1,24 @@
+package com.example.capstone.config;
+
+import com.example.capstone.controller.ECUStreamHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ECUStreamHandler ecuStreamHandler;
+
+    public WebSocketConfig(ECUStreamHandler ecuStreamHandler) {
+        this.ecuStreamHandler = ecuStreamHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // ECUs do not send an Origin header, so origins are not restricted here
+        registry.addHandler(ecuStreamHandler, "/api/ecus/stream/*").setAllowedOrigins("*");
+    }
+}
@@ -4,6 +4,7 @@ import com.example.capstone.dto.CompetitionDTO;
 import com.example.capstone.model.Competition;
 import com.example.capstone.service.CompetitionService;
 import com.example.capstone.service.TeamService;
+import com.example.capstone.service.TelemetryRetentionService;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -12,9 +13,12 @@ import java.util.List;
 @RequestMapping("/api/competitions")
 public class CompetitionController {
     private final CompetitionService competitionService;
+    private final TelemetryRetentionService retentionService;
 
-    public CompetitionController(CompetitionService competitionService, TeamService teamService) {
+    public CompetitionController(CompetitionService competitionService, TeamService teamService,
+                                 TelemetryRetentionService retentionService) {
         this.competitionService = competitionService;
+        this.retentionService = retentionService;
     }
 
     @GetMapping
@@ -47,6 +51,12 @@ public class CompetitionController {
         return competitionService.removeTeamFromCompetition(competitionId, teamId);
     }
 
+    // Moves the competition's samples to the archive now instead of waiting for its retention age
+    @PostMapping("/{competitionId}/archiveTelemetry")
+    public int archiveTelemetry(@PathVariable String competitionId) {
+        return retentionService.archiveCompetition(competitionId);
+    }
+
     @DeleteMapping("/{competitionId}")
     public void deleteCompetition(@PathVariable String competitionId) {
         competitionService.deleteCompetition(competitionId);
@@ -1,20 +1,54 @@
 package com.example.capstone.controller;
 
-import com.example.capstone.dto.ECUStatusDTO;
+import com.example.capstone.dto.AdmissionStatsDTO;
+import com.example.capstone.dto.ChunkAckDTO;
+import com.example.capstone.dto.ECUHealthDTO;
+import com.example.capstone.dto.ECUSummaryDTO;
+import com.example.capstone.dto.IngestAdviceDTO;
+import com.example.capstone.dto.TelemetryRollupSeriesDTO;
 import com.example.capstone.model.ECU;
-import com.example.capstone.model.ECUStatus;
+import com.example.capstone.model.ECUCalibration;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.TelemetryStats;
+import com.example.capstone.service.ECUHealthRegistry;
 import com.example.capstone.service.ECUService;
+import com.example.capstone.service.IngestAdmissionControl;
+import com.example.capstone.service.IngestFlowControl;
+import com.example.capstone.service.StaleSessionException;
+import com.example.capstone.service.TelemetryIngestStage;
+import com.example.capstone.util.ECUChunkJsonParser;
+import com.example.capstone.util.ECURecordUtil;
+import com.example.capstone.util.MalformedChunkException;
+import com.example.capstone.util.SampleDownsampler;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/ecus")
 public class ECUController {
+    private static final String SESSION_HEADER = "X-ECU-Session";
+
     private final ECUService ecuService;
+    private final IngestFlowControl flowControl;
+    private final IngestAdmissionControl admissionControl;
+    private final ECUHealthRegistry healthRegistry;
 
-    public ECUController(ECUService ecuService) {
+    public ECUController(ECUService ecuService, IngestFlowControl flowControl, IngestAdmissionControl admissionControl,
+                         ECUHealthRegistry healthRegistry) {
         this.ecuService = ecuService;
+        this.flowControl = flowControl;
+        this.admissionControl = admissionControl;
+        this.healthRegistry = healthRegistry;
     }
 
     @GetMapping
@@ -22,11 +56,29 @@ public class ECUController {
         return ecuService.getAllECUs();
     }
 
+    // Id, serial and vehicle of every ECU; GET /api/ecus also loads each one's samples
+    @GetMapping("/summaries")
+    public List<ECUSummaryDTO> getECUSummaries() {
+        return ecuService.getECUSummaries();
+    }
+
     @GetMapping("/{id}")
     public ECU getECUById(@PathVariable String id) {
         return ecuService.getECUById(id);
     }
 
+    // Per-serial admission counters for the ingest endpoints
+    @GetMapping("/admission")
+    public List<AdmissionStatsDTO> getAdmissionStats() {
+        return admissionControl.getStats();
+    }
+
+    // Last-seen time, sample rate, ingest lag and chunk errors per ECU, without any samples
+    @GetMapping("/health")
+    public List<ECUHealthDTO> getFleetHealth() {
+        return healthRegistry.getHealth();
+    }
+
     @GetMapping("/getUnregisteredECUs")
     public List<ECU> getUnregisteredECUs() {
         return ecuService.getUnregisteredECUs();
@@ -38,10 +90,12 @@ public class ECUController {
         return ecuService.createECU(ecu);
     }
 
+    // Starts an upload session; the token in X-ECU-Session ties later chunks to this session's recording origin
     @PostMapping("/register/{serialNumber}/{currentTicks}")
-    public ECU registerECU(@PathVariable String serialNumber,
-                           @PathVariable Long currentTicks) {
-        return ecuService.registerECU(serialNumber, currentTicks);
+    public ResponseEntity<ECU> registerECU(@PathVariable String serialNumber,
+                                           @PathVariable Long currentTicks) {
+        ECU ecu = ecuService.registerECU(serialNumber, currentTicks);
+        return ResponseEntity.ok().header(SESSION_HEADER, ecu.getSessionToken()).body(ecu);
     }
 
 
@@ -50,15 +104,115 @@ public class ECUController {
         return ecuService.assignECUToVehicleBySerial(serial, vehicleId);
     }
 
+    // seq is an optional per-registration chunk number; a chunk at or below the last one
+    // ingested is acknowledged with X-Chunk-Duplicate: true and not written again.
+    // The [{t, v, c}, ...] body is stream-parsed rather than bound to DTOs.
+    // Every response carries X-Ingest-Chunk-Size / X-Ingest-Pacing-Ms (see compsys/INGEST_PROTOCOL.md).
     @PostMapping("/bulk/{serialNumber}")
-    public List<ECUStatus> createBulkECUStatus(@Valid @RequestBody List<ECUStatusDTO> ecuStatuses,
-                                               @PathVariable String serialNumber) {
-        return ecuService.createBulkECUStatus(ecuStatuses, serialNumber);
+    public ResponseEntity<ChunkAckDTO> createBulkECUStatus(InputStream body,
+                                                           @PathVariable String serialNumber,
+                                                            @RequestHeader(value = SESSION_HEADER, required = false) String session,
+                                                            @RequestParam(required = false) Long seq) throws IOException {
+        try {
+            return toChunkResponse(ecuService.createBulkECUStatus(ECUChunkJsonParser.parse(body), serialNumber, session, seq));
+        } catch (MalformedChunkException | StaleSessionException | TelemetryIngestStage.QueueFullException e) {
+            healthRegistry.onChunkError(serialNumber);
+            throw e;
+        }
+    }
+
+    // Raw <HHH> records straight from the ECU log, 6 bytes per sample instead of a JSON object
+    @PostMapping(value = "/bulk/{serialNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ChunkAckDTO> createBulkECUStatusBinary(@RequestBody byte[] records,
+                                                                 @PathVariable String serialNumber,
+                                                                 @RequestHeader(value = SESSION_HEADER, required = false) String session,
+                                                                 @RequestParam(required = false) Long seq) {
+        try {
+            return toChunkResponse(ecuService.createBulkECUStatus(ECURecordUtil.decode(ByteBuffer.wrap(records)), serialNumber, session, seq));
+        } catch (MalformedChunkException | StaleSessionException | TelemetryIngestStage.QueueFullException e) {
+            healthRegistry.onChunkError(serialNumber);
+            throw e;
+        }
+    }
+
+    @ExceptionHandler(MalformedChunkException.class)
+    public ResponseEntity<String> handleMalformedChunk(MalformedChunkException e) {
+        return withAdvice(ResponseEntity.badRequest(), flowControl.advise()).body(e.getMessage());
+    }
+
+    // The device must register again before its chunks can be placed in time
+    @ExceptionHandler(StaleSessionException.class)
+    public ResponseEntity<String> handleStaleSession(StaleSessionException e) {
+        return withAdvice(ResponseEntity.status(HttpStatus.CONFLICT), flowControl.advise()).body(e.getMessage());
+    }
+
+    // The ingest queue is full: tell the device to back off instead of holding the request open
+    @ExceptionHandler(TelemetryIngestStage.QueueFullException.class)
+    public ResponseEntity<String> handleIngestQueueFull(TelemetryIngestStage.QueueFullException e) {
+        IngestAdviceDTO advice = flowControl.adviseRejected();
+        long retryAfterSeconds = Math.max(1, (advice.getPacingMillis() + 999) / 1000);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return withAdvice(response, advice).body(e.getMessage());
+    }
+
+    // The body is the ack alone; echoing the stored samples back would cost as much as the upload
+    private ResponseEntity<ChunkAckDTO> toChunkResponse(ChunkAckDTO ack) {
+        ResponseEntity.BodyBuilder response = withAdvice(ResponseEntity.ok(), flowControl.advise());
+        if (ack.getSeq() != null) {
+            response.header("X-Chunk-Seq", ack.getSeq().toString());
+            response.header("X-Chunk-Duplicate", String.valueOf(ack.isDuplicate()));
+        }
+        return response.body(ack);
+    }
+
+    private static ResponseEntity.BodyBuilder withAdvice(ResponseEntity.BodyBuilder response, IngestAdviceDTO advice) {
+        return response.header("X-Ingest-Chunk-Size", String.valueOf(advice.getChunkSamples()))
+                .header("X-Ingest-Pacing-Ms", String.valueOf(advice.getPacingMillis()));
+    }
+
+    // Summary statistics without shipping the samples
+    @GetMapping("/{ecuId}/stats")
+    public TelemetryStats getTelemetryStats(@PathVariable String ecuId) {
+        return ecuService.getTelemetryStats(ecuId, null);
+    }
+
+    @GetMapping("/{ecuId}/stats/{eventId}")
+    public TelemetryStats getTelemetryStatsByEvent(@PathVariable String ecuId, @PathVariable String eventId) {
+        return ecuService.getTelemetryStats(ecuId, eventId);
+    }
+
+    // Overview charts: min/max/avg/sum per bucket, with the bucket width chosen to fit maxPoints
+    @GetMapping("/{ecuId}/rollups")
+    public TelemetryRollupSeriesDTO getRollups(@PathVariable String ecuId,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                               @RequestParam(defaultValue = "1000") int maxPoints) {
+        return ecuService.getRollups(ecuId, from, to, maxPoints);
+    }
+
+    @GetMapping("/{ecuId}/rollups/{eventId}")
+    public TelemetryRollupSeriesDTO getRollupsByEvent(@PathVariable String ecuId, @PathVariable String eventId,
+                                                      @RequestParam(defaultValue = "1000") int maxPoints) {
+        return ecuService.getRollupsByEvent(ecuId, eventId, maxPoints);
+    }
+
+    @GetMapping("/{ecuId}/calibration")
+    public ECUCalibration getCalibration(@PathVariable String ecuId) {
+        return ecuService.getCalibration(ecuId);
+    }
+
+    @PutMapping("/{ecuId}/calibration")
+    public ECUCalibration setCalibration(@PathVariable String ecuId, @RequestBody ECUCalibration calibration) {
+        return ecuService.setCalibration(ecuId, calibration);
     }
 
+    // maxPoints decimates the event for charting (LTTB on power); omit it for every sample
     @GetMapping("/{ecuId}/getStatusByEvent/{eventId}")
-    public List<ECUStatus> getECUStatusByEvent(@PathVariable String ecuId, @PathVariable String eventId) {
-        return ecuService.getECUStatusByEvent(ecuId, eventId);
+    public SampleSeries getECUStatusByEvent(@PathVariable String ecuId, @PathVariable String eventId,
+                                            @RequestParam(required = false) Integer maxPoints) {
+        SampleSeries samples = ecuService.getECUStatusByEvent(ecuId, eventId);
+        return maxPoints == null ? samples : SampleDownsampler.lttb(samples, maxPoints);
     }
 
     @PostMapping("/{ecuId}/deregisterFromVehicle")
@@ -0,0 +1,81 @@
+package com.example.capstone.controller;
+
+import com.example.capstone.model.ECULogUpload;
+import com.example.capstone.service.ECULogUploadService;
+import com.example.capstone.service.UploadOffsetException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Post-race upload of a whole ECU log:
+//   POST /api/ecus/uploads/{serialNumber}?totalBytes=N   open an upload
+//   PUT  /api/ecus/uploads/{uploadId}                    send bytes, Content-Range: bytes start-end/total
+//   GET  /api/ecus/uploads/{uploadId}                    resume offset (receivedBytes) and import progress
+//   POST /api/ecus/uploads/{uploadId}/retry              import the segments a FAILED upload is missing
+@RestController
+@RequestMapping("/api/ecus/uploads")
+public class ECULogUploadController {
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    private final ECULogUploadService uploadService;
+
+    public ECULogUploadController(ECULogUploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @PostMapping("/{serialNumber}")
+    public ECULogUpload createUpload(@PathVariable String serialNumber,
+                                     @RequestParam long totalBytes,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startedRecordingAt) throws IOException {
+        return uploadService.createUpload(serialNumber, totalBytes, startedRecordingAt);
+    }
+
+    // Without Content-Range the body is appended at the current offset
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ECULogUpload appendUpload(@PathVariable String uploadId,
+                                     @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+                                     InputStream body) throws IOException {
+        Long offset = null;
+        if (contentRange != null) {
+            Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Content-Range must look like 'bytes start-end/total'");
+            }
+            offset = Long.parseLong(matcher.group(1));
+        }
+        return uploadService.append(uploadId, offset, body);
+    }
+
+    @GetMapping("/{uploadId}")
+    public ECULogUpload getUpload(@PathVariable String uploadId) {
+        return uploadService.getUpload(uploadId);
+    }
+
+    @PostMapping("/{uploadId}/retry")
+    public ECULogUpload retryUpload(@PathVariable String uploadId) {
+        return uploadService.retry(uploadId);
+    }
+
+    @GetMapping("/ecu/{serialNumber}")
+    public List<ECULogUpload> getUploadsForECU(@PathVariable String serialNumber) {
+        return uploadService.getUploadsForECU(serialNumber);
+    }
+
+    // Tells the client where to resume; it should continue from X-Upload-Offset
+    @ExceptionHandler(UploadOffsetException.class)
+    public ResponseEntity<String> handleOffsetMismatch(UploadOffsetException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("X-Upload-Offset", String.valueOf(e.getExpectedOffset()))
+                .body(e.getMessage());
+    }
+}
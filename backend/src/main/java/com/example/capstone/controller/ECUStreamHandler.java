@@ -0,0 +1,230 @@
+package com.example.capstone.controller;
+
+import com.example.capstone.dto.ChunkAckDTO;
+import com.example.capstone.dto.IngestAdviceDTO;
+import com.example.capstone.model.ECU;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.service.ECUHealthRegistry;
+import com.example.capstone.service.ECUService;
+import com.example.capstone.service.IngestAdmissionControl;
+import com.example.capstone.service.IngestFlowControl;
+import com.example.capstone.service.StaleSessionException;
+import com.example.capstone.service.TelemetryIngestStage;
+import com.example.capstone.util.ECUChunkJsonParser;
+import com.example.capstone.util.ECURecordUtil;
+import com.example.capstone.util.MalformedChunkException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Persistent streaming channel for ECUs: ws://<server>/api/ecus/stream/{serialNumber}?ticks={currentTicks}
+// The connection performs the register handshake once, then every frame is one chunk:
+// binary frames carry packed <HHH> records, text frames the same JSON array as the bulk endpoint.
+// The server answers with {"ack": frame, "samples": n, "chunkSize": s, "pacingMs": p} every few
+// frames and {"nack": frame, ...} for a frame it could not take, which the device should resend.
+// chunkSize and pacingMs follow the same flow-control protocol as the bulk endpoint's headers.
+// With &numbered=true every frame starts with the device's frame number (a <I before binary
+// records, decimal digits and a newline before JSON), which acks and nacks then refer to and which
+// is used like the bulk seq, so a resent frame that was already taken is not stored twice.
+@Component
+public class ECUStreamHandler extends AbstractWebSocketHandler {
+    private static final String SERIAL_ATTRIBUTE = "serialNumber";
+    private static final String SESSION_ATTRIBUTE = "sessionToken";
+    private static final String FRAMES_ATTRIBUTE = "frames";
+    private static final String SAMPLES_ATTRIBUTE = "samples";
+    private static final String PARTIAL_ATTRIBUTE = "partialFrame";
+    private static final String NUMBERED_ATTRIBUTE = "numbered";
+
+    private final ECUService ecuService;
+    private final IngestFlowControl flowControl;
+    private final IngestAdmissionControl admissionControl;
+    private final ECUHealthRegistry healthRegistry;
+
+    @Value("${telemetry.stream.ack-every:20}")
+    private int ackEvery;
+
+    @Value("${telemetry.stream.max-frame-bytes:524288}")
+    private int maxFrameBytes;
+
+    public ECUStreamHandler(ECUService ecuService, IngestFlowControl flowControl, IngestAdmissionControl admissionControl,
+                            ECUHealthRegistry healthRegistry) {
+        this.ecuService = ecuService;
+        this.flowControl = flowControl;
+        this.admissionControl = admissionControl;
+        this.healthRegistry = healthRegistry;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        UriComponents uri = UriComponentsBuilder.fromUri(session.getUri()).build();
+        String serialNumber = uri.getPathSegments().get(uri.getPathSegments().size() - 1);
+        String ticks = uri.getQueryParams().getFirst("ticks");
+        if (ticks == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("ticks query parameter is required"));
+            return;
+        }
+        long currentTicks;
+        try {
+            currentTicks = Long.parseLong(ticks);
+        } catch (NumberFormatException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("ticks must be a number"));
+            return;
+        }
+        ECU ecu = ecuService.registerECU(serialNumber, currentTicks);
+        session.getAttributes().put(SERIAL_ATTRIBUTE, serialNumber);
+        session.getAttributes().put(SESSION_ATTRIBUTE, ecu.getSessionToken());
+        session.getAttributes().put(NUMBERED_ATTRIBUTE, Boolean.parseBoolean(uri.getQueryParams().getFirst("numbered")));
+        session.getAttributes().put(FRAMES_ATTRIBUTE, 0L);
+        session.getAttributes().put(SAMPLES_ATTRIBUTE, 0L);
+        System.out.println("ECU " + serialNumber + " opened a telemetry stream");
+    }
+
+    // Large frames arrive in pieces (the container buffers 8 KB by default); they are reassembled here
+    @Override
+    public boolean supportsPartialMessages() {
+        return true;
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException {
+        byte[] frame = assembleFrame(session, message.getPayload(), message.isLast());
+        if (frame != null) {
+            ingest(session, frame, true);
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        ByteBuffer piece = ByteBuffer.wrap(message.getPayload().getBytes(StandardCharsets.UTF_8));
+        byte[] frame = assembleFrame(session, piece, message.isLast());
+        if (frame != null) {
+            ingest(session, frame, false);
+        }
+    }
+
+    // Returns the complete frame once its last piece has arrived, otherwise null
+    private byte[] assembleFrame(WebSocketSession session, ByteBuffer piece, boolean last) throws IOException {
+        ByteArrayOutputStream partial = (ByteArrayOutputStream) session.getAttributes().get(PARTIAL_ATTRIBUTE);
+        byte[] bytes = new byte[piece.remaining()];
+        piece.get(bytes);
+        if (last && partial == null) {
+            return bytes;
+        }
+        if (partial == null) {
+            partial = new ByteArrayOutputStream();
+            session.getAttributes().put(PARTIAL_ATTRIBUTE, partial);
+        }
+        if (partial.size() + bytes.length > maxFrameBytes) {
+            session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            return null;
+        }
+        partial.write(bytes);
+        if (!last) {
+            return null;
+        }
+        session.getAttributes().remove(PARTIAL_ATTRIBUTE);
+        return partial.toByteArray();
+    }
+
+    private void ingest(WebSocketSession session, byte[] body, boolean binary) throws IOException {
+        String serialNumber = (String) session.getAttributes().get(SERIAL_ATTRIBUTE);
+        String sessionToken = (String) session.getAttributes().get(SESSION_ATTRIBUTE);
+        long frames = (Long) session.getAttributes().get(FRAMES_ATTRIBUTE) + 1;
+        session.getAttributes().put(FRAMES_ATTRIBUTE, frames);
+        ByteBuffer records = ByteBuffer.wrap(body);
+        Long seq = null;
+        if ((Boolean) session.getAttributes().get(NUMBERED_ATTRIBUTE)) {
+            try {
+                seq = binary ? takeBinarySeq(records) : takeTextSeq(records);
+            } catch (MalformedChunkException e) {
+                healthRegistry.onChunkError(serialNumber);
+                sendNack(session, frames, e.getMessage(), 0);
+                return;
+            }
+        }
+        long frame = seq != null ? seq : frames;
+        IngestAdmissionControl.Outcome outcome = admissionControl.tryAdmit(serialNumber);
+        if (outcome != IngestAdmissionControl.Outcome.ADMITTED) {
+            sendNack(session, frame, "not admitted: " + outcome.name(), admissionControl.retryAfterMillis(serialNumber, outcome));
+            return;
+        }
+        try {
+            SampleSeries samples = binary
+                    ? ECURecordUtil.decode(records.slice())
+                    : ECUChunkJsonParser.parse(new ByteArrayInputStream(body, records.position(), records.remaining()));
+            ChunkAckDTO ack = ecuService.createBulkECUStatus(samples, serialNumber, sessionToken, seq);
+            long total = (Long) session.getAttributes().get(SAMPLES_ATTRIBUTE) + ack.getSamples();
+            session.getAttributes().put(SAMPLES_ATTRIBUTE, total);
+            if (frames % ackEvery == 0) {
+                IngestAdviceDTO advice = flowControl.advise();
+                session.sendMessage(new TextMessage("{\"ack\":" + frame + ",\"samples\":" + total
+                        + ",\"chunkSize\":" + advice.getChunkSamples() + ",\"pacingMs\":" + advice.getPacingMillis() + "}"));
+            }
+        } catch (MalformedChunkException e) {
+            healthRegistry.onChunkError(serialNumber);
+            sendNack(session, frame, e.getMessage(), 0);
+        } catch (TelemetryIngestStage.QueueFullException e) {
+            healthRegistry.onChunkError(serialNumber);
+            sendNack(session, frame, e.getMessage(), flowControl.adviseRejected().getPacingMillis());
+        } catch (StaleSessionException e) {
+            healthRegistry.onChunkError(serialNumber);
+            // The ECU registered again elsewhere; this stream's recording origin is no longer valid
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("session replaced, reconnect"));
+        } finally {
+            admissionControl.release(serialNumber);
+        }
+    }
+
+    // The frame number in front of a numbered binary frame, as struct.pack('<I', n) writes it
+    private static long takeBinarySeq(ByteBuffer frame) {
+        if (frame.remaining() < 4) {
+            throw new MalformedChunkException("frame is shorter than its frame number");
+        }
+        return Integer.toUnsignedLong(frame.order(ByteOrder.LITTLE_ENDIAN).getInt());
+    }
+
+    // The decimal frame number and newline in front of a numbered JSON frame
+    private static long takeTextSeq(ByteBuffer frame) {
+        long seq = 0;
+        int digits = 0;
+        while (frame.hasRemaining()) {
+            byte b = frame.get();
+            if (b == '\n' && digits > 0) {
+                return seq;
+            }
+            if (b < '0' || b > '9' || ++digits > 18) {
+                break;
+            }
+            seq = seq * 10 + (b - '0');
+        }
+        throw new MalformedChunkException("frame does not start with its frame number");
+    }
+
+    private void sendNack(WebSocketSession session, long frame, String reason, long retryAfterMillis) throws IOException {
+        String escaped = reason.replace("\\", "\\\\").replace("\"", "\\\"");
+        session.sendMessage(new TextMessage("{\"nack\":" + frame + ",\"reason\":\"" + escaped
+                + "\",\"retryAfterMs\":" + retryAfterMillis + "}"));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Object serialNumber = session.getAttributes().get(SERIAL_ATTRIBUTE);
+        if (serialNumber != null) {
+            System.out.println("ECU " + serialNumber + " closed its telemetry stream after "
+                    + session.getAttributes().get(FRAMES_ATTRIBUTE) + " frames (" + status + ")");
+        }
+    }
+}
@@ -77,4 +77,15 @@ public class RaceResultController {
             return ResponseEntity.badRequest().body("Error updating energy: " + e.getMessage());
         }
     }
+
+    // Energy is kept current on ingest; this recomputes it from the stored samples after a repair
+    @PostMapping("/rebuild-energy/{eventId}")
+    public ResponseEntity<String> rebuildEnergyForEvent(@PathVariable String eventId) {
+        try {
+            raceResultService.rebuildEnergyForEvent(eventId);
+            return ResponseEntity.ok("Energy rebuilt successfully");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error rebuilding energy: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
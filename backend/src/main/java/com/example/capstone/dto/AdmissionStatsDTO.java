@@ -0,0 +1,21 @@
+package com.example.capstone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AdmissionStatsDTO {
+	private String serialNumber;
+	// Relative share of the global concurrency cap while several ECUs are active
+	private double weight;
+	// Chunks from this ECU currently being ingested
+	private int inFlight;
+	private long admitted;
+	// Rejected because the ECU's token bucket was empty
+	private long rateLimited;
+	// Rejected because the ECU already had its fair share of the concurrency cap in flight
+	private long fairShareRejected;
+	// Rejected because the global concurrency cap was reached
+	private long overloadRejected;
+}
@@ -0,0 +1,15 @@
+package com.example.capstone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ChunkAckDTO {
+	// Chunk sequence number sent by the device, null for unnumbered chunks
+	private Long seq;
+	// True when the chunk was already ingested in this session and nothing was written
+	private boolean duplicate;
+	// Number of samples taken from the chunk, 0 for duplicates
+	private int samples;
+}
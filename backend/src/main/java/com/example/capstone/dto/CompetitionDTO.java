@@ -12,4 +12,5 @@ public class CompetitionDTO {
 	private String location;
 	private Instant date;
 	private Boolean isFinal;
+	private Integer archiveAfterDays;
 }
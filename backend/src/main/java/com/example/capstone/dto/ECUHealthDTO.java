@@ -0,0 +1,25 @@
+package com.example.capstone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class ECUHealthDTO {
+	private String serialNumber;
+	private String ecuId;
+	private Instant sessionStartedAt;
+	private Instant lastSeenAt;
+	// Over the last ECUHealthRegistry.RATE_WINDOW_SECONDS
+	private double samplesPerSecond;
+	// Arrival time minus the newest sample's time, for the latest chunk
+	private Long ingestLagMillis;
+	private long chunkErrors;
+	// Newest sample of the latest chunk, calibrated; null before the first one
+	private Instant lastSampleAt;
+	private Double voltage;
+	private Double current;
+	private Double power;
+}
@@ -0,0 +1,13 @@
+package com.example.capstone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// What ECU pickers and fleet overviews need, without the samples GET /api/ecus attaches
+@Data
+@AllArgsConstructor
+public class ECUSummaryDTO {
+	private String id;
+	private String serialNumber;
+	private String vehicleId;
+}
@@ -0,0 +1,13 @@
+package com.example.capstone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class IngestAdviceDTO {
+	// Number of samples the device should put in its next chunk
+	private int chunkSamples;
+	// How long the device should wait before sending its next chunk
+	private long pacingMillis;
+}
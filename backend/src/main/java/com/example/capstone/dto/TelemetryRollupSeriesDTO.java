@@ -0,0 +1,20 @@
+package com.example.capstone.dto;
+
+import com.example.capstone.model.TelemetryRollup;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TelemetryRollupSeriesDTO {
+	private String ecuId;
+	// Bucket width of the points; 1, 10 or 60 s, or a multiple of 60 s for ranges too long for minute buckets
+	private int resolutionSeconds;
+	private Instant from;
+	private Instant to;
+	// Buckets overlapping (from, to) in time order; the first and last may extend past the range
+	private List<TelemetryRollup> points;
+}
@@ -0,0 +1,16 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Transient;
+
+// min/max/sum of one channel over a rollup bucket. Stored fields are maintained with $min/$max/$inc
+// upserts, so they merge the same whichever order samples arrive in; avg is filled in on read.
+@Data
+public class ChannelRollup {
+    private Double min;
+    private Double max;
+    private double sum;
+
+    @Transient
+    private Double avg;
+}
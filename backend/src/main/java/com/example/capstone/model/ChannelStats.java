@@ -0,0 +1,44 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+
+// Streaming count/min/max/mean/variance of one telemetry channel, updated with Welford's method
+// so it takes constant memory and stays numerically stable over long races
+@Data
+public class ChannelStats {
+    private long count;
+    // null until the first value
+    private Double min;
+    private Double max;
+    private double mean;
+    // Sum of squared differences from the running mean
+    private double m2;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = min == null ? value : Math.min(min, value);
+        max = max == null ? value : Math.max(max, value);
+    }
+
+    // Sample variance; 0 until there are two values
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0.0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public ChannelStats copy() {
+        ChannelStats copy = new ChannelStats();
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.mean = mean;
+        copy.m2 = m2;
+        return copy;
+    }
+}
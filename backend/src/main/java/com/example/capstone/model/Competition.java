@@ -42,6 +42,10 @@ public class Competition {
     @NotNull
     private Boolean isFinal;
 
+    // Days after the last event before its samples are archived; null for
+    // telemetry.retention.archive-after-days, negative to never archive
+    private Integer archiveAfterDays;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -64,6 +68,9 @@ public class Competition {
         if(competitionDTO.getIsFinal() != null) {
             this.isFinal = competitionDTO.getIsFinal();
         }
+        if(competitionDTO.getArchiveAfterDays() != null) {
+            this.archiveAfterDays = competitionDTO.getArchiveAfterDays();
+        }
         return this;
     }
 }
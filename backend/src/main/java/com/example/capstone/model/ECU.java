@@ -1,11 +1,13 @@
 package com.example.capstone.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -19,17 +21,28 @@ public class ECU {
     private String id;
 
     @NotBlank
-    @Indexed
+    @Indexed(unique = true)
     private String serialNumber;
 
     private String vehicleId;
 
-    @NotNull
+    // Samples live in the ecu_samples time-series collection; this is only filled for API responses
+    @Transient
     private List<ECUStatus> ecuStatusList;
 
     @NotNull
     private Instant startedRecordingAt;
 
+    // Highest chunk sequence number ingested since the last register call
+    private Long lastChunkSeq;
+
+    // Null until one is set; the nominal conversion applies meanwhile
+    private ECUCalibration calibration;
+
+    // Issued by each register call; chunks sent with an older token are rejected
+    @JsonIgnore
+    private String sessionToken;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -0,0 +1,18 @@
+package com.example.capstone.model;
+
+import com.example.capstone.util.ECURecordUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Per-ECU conversion from 16-bit ADC counts: value = counts * perCount + offset. An ECU without
+// one uses the firmware's nominal conversion, which is also what stored samples are kept in.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ECUCalibration {
+    private double voltsPerCount = ECURecordUtil.NOMINAL_VOLTS_PER_COUNT;
+    private double voltageOffset;
+    private double ampsPerCount = ECURecordUtil.NOMINAL_AMPS_PER_COUNT;
+    private double currentOffset;
+}
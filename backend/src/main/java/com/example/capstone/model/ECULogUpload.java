@@ -0,0 +1,65 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+// A whole on-device log being uploaded after a race. The bytes are staged on local disk
+// (see ECULogUploadService); this document tracks the resume offset and parse progress.
+@Data
+@Document(collection = "ecu_log_uploads")
+public class ECULogUpload {
+    public static final String RECEIVING = "RECEIVING";
+    public static final String PARSING = "PARSING";
+    public static final String COMPLETE = "COMPLETE";
+    public static final String FAILED = "FAILED";
+    // FAILED and not retried in time; the staging file is gone, so the log must be uploaded again
+    public static final String EXPIRED = "EXPIRED";
+
+    @Id
+    private String id;
+
+    @NotBlank
+    @Indexed
+    private String serialNumber;
+
+    private String ecuId;
+
+    // Origin the log's relative timestamps are placed against
+    private Instant startedRecordingAt;
+
+    private long totalBytes;
+
+    // Bytes stored so far; the next ranged PUT must start here
+    private long receivedBytes;
+
+    private String status;
+
+    private int totalSegments;
+
+    // Fixed by the first import attempt so segment indexes mean the same thing on a retry
+    private int segmentRecords;
+
+    private int parsedSegments;
+
+    // Indexes of the segments already inserted; a retry imports only the others
+    private Set<Integer> completedSegments = new HashSet<>();
+
+    private long insertedSamples;
+
+    private String error;
+
+    @CreatedDate
+    private Instant createdAt;
+
+    @LastModifiedDate
+    private Instant updatedAt;
+}
@@ -0,0 +1,57 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.Instant;
+
+// One telemetry sample, stored in a MongoDB time-series collection bucketed by ECU
+@Data
+@Document(collection = "ecu_samples")
+@TimeSeries(timeField = "timestamp", metaField = "ecuId", granularity = Granularity.SECONDS)
+public class ECUSample {
+    @Id
+    private String id;
+
+    @NotBlank
+    private String ecuId;
+
+    @NotNull
+    private Instant timestamp;
+
+    @NotNull
+    private Double voltage;
+
+    @NotNull
+    private Double current;
+
+    @NotNull
+    private Double power;
+
+    // Event the sample was recorded in, tagged at ingest from EventWindowIndex; null outside events
+    private String eventId;
+
+    public static ECUSample of(String ecuId, ECUStatus status) {
+        ECUSample sample = new ECUSample();
+        sample.setEcuId(ecuId);
+        sample.setTimestamp(status.getTimestamp());
+        sample.setVoltage(status.getVoltage());
+        sample.setCurrent(status.getCurrent());
+        sample.setPower(status.getPower());
+        return sample;
+    }
+
+    public ECUStatus toStatus() {
+        ECUStatus status = new ECUStatus();
+        status.setTimestamp(timestamp);
+        status.setVoltage(voltage);
+        status.setCurrent(current);
+        status.setPower(power);
+        return status;
+    }
+}
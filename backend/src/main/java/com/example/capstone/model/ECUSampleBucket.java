@@ -0,0 +1,36 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A run of samples from one ECU within one time bucket, stored as GorillaCodec columns
+@Data
+@Document(collection = "ecu_sample_buckets")
+public class ECUSampleBucket {
+    @Id
+    private String id;
+
+    @NotBlank
+    private String ecuId;
+
+    // Buckets are also cut at event boundaries, so every sample in one shares this tag
+    private String eventId;
+
+    // Timestamps of the first and last sample in the bucket (inclusive)
+    @NotNull
+    private Instant startTime;
+
+    @NotNull
+    private Instant endTime;
+
+    @NotNull
+    private Integer count;
+
+    @NotNull
+    private byte[] data;
+}
@@ -0,0 +1,39 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Running energy total for one ECU in one event, kept up to date on the ingest path
+// (see EnergyAccumulatorService) and persisted periodically
+@Data
+@Document(collection = "energy_accumulators")
+@CompoundIndex(name = "ecu_event", def = "{'ecuId': 1, 'eventId': 1}", unique = true)
+public class EnergyAccumulator {
+    @Id
+    private String id;
+
+    @NotBlank
+    private String ecuId;
+
+    @NotBlank
+    private String eventId;
+
+    // Left-Riemann sum of power over time, in Wh
+    private double energyWh;
+
+    // Last sample folded in; the next sample's interval is charged at this power
+    private Instant lastTimestamp;
+
+    private Double lastPower;
+
+    private long sampleCount;
+
+    @LastModifiedDate
+    private Instant updatedAt;
+}
@@ -0,0 +1,20 @@
+package com.example.capstone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// A run of samples from one ECU, as it moves from the ingest endpoints to storage
+@Data
+@AllArgsConstructor
+public class SampleChunk {
+    private String ecuId;
+    private SampleSeries samples;
+    // Session and chunk number the device sent it under; both null for unnumbered chunks.
+    // The mark is saved to the ECU document together with the samples.
+    private String sessionToken;
+    private Long seq;
+
+    public SampleChunk(String ecuId, SampleSeries samples) {
+        this(ecuId, samples, null, null);
+    }
+}
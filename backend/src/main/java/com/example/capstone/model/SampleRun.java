@@ -0,0 +1,16 @@
+package com.example.capstone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Samples [from, to) of a time-ordered series, all from one ECU and within one event (eventId
+// null outside any event)
+@Data
+@AllArgsConstructor
+public class SampleRun {
+    private String ecuId;
+    private String eventId;
+    private SampleSeries samples;
+    private int from;
+    private int to;
+}
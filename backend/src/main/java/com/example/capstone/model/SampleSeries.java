@@ -0,0 +1,258 @@
+package com.example.capstone.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// In-memory sample series backed by parallel primitive arrays (epoch millis, V, A, W).
+// Used inside the service layer instead of List<ECUStatus> so reading an event's worth of
+// samples costs four arrays rather than millions of small objects. It serializes to the same
+// JSON as a List<ECUStatus>, so controllers can return it directly.
+@JsonSerialize(using = SampleSeries.Serializer.class)
+public class SampleSeries {
+    private long[] timestamps;
+    private double[] voltage;
+    private double[] current;
+    private double[] power;
+    private int size;
+
+    public SampleSeries() {
+        this(64);
+    }
+
+    public SampleSeries(int capacity) {
+        capacity = Math.max(capacity, 1);
+        timestamps = new long[capacity];
+        voltage = new double[capacity];
+        current = new double[capacity];
+        power = new double[capacity];
+    }
+
+    public static SampleSeries fromStatuses(List<ECUStatus> statuses) {
+        SampleSeries series = new SampleSeries(statuses.size());
+        for (ECUStatus status : statuses) {
+            series.add(status.getTimestamp().toEpochMilli(), status.getVoltage(), status.getCurrent(), status.getPower());
+        }
+        return series;
+    }
+
+    public void add(long timestampMillis, double v, double c, double p) {
+        if (size == timestamps.length) {
+            grow(size + 1);
+        }
+        timestamps[size] = timestampMillis;
+        voltage[size] = v;
+        current[size] = c;
+        power[size] = p;
+        size++;
+    }
+
+    public void addAll(SampleSeries other) {
+        addRange(other, 0, other.size);
+    }
+
+    // Appends other's samples in [from, to)
+    public void addRange(SampleSeries other, int from, int to) {
+        int count = to - from;
+        if (count <= 0) {
+            return;
+        }
+        grow(size + count);
+        System.arraycopy(other.timestamps, from, timestamps, size, count);
+        System.arraycopy(other.voltage, from, voltage, size, count);
+        System.arraycopy(other.current, from, current, size, count);
+        System.arraycopy(other.power, from, power, size, count);
+        size += count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestampAt(int i) {
+        return timestamps[i];
+    }
+
+    public double voltageAt(int i) {
+        return voltage[i];
+    }
+
+    public double currentAt(int i) {
+        return current[i];
+    }
+
+    public double powerAt(int i) {
+        return power[i];
+    }
+
+    // Index of the first sample with a timestamp after timestampMillis (size() if none), by binary
+    // search; the series must be sorted. With firstAtOrAfter this gives the index range of samples
+    // strictly between two instants, matching the exclusive bounds of an event window
+    public int firstAfter(long timestampMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first sample at or after timestampMillis (size() if none); the series must be sorted
+    public int firstAtOrAfter(long timestampMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Whether some sample is at exactly timestampMillis; the series must be sorted
+    public boolean containsTimestamp(long timestampMillis) {
+        int i = firstAtOrAfter(timestampMillis);
+        return i < size && timestamps[i] == timestampMillis;
+    }
+
+    // Moves every timestamp by offsetMillis, e.g. from device-relative time to wall clock
+    public void shiftTimestamps(long offsetMillis) {
+        for (int i = 0; i < size; i++) {
+            timestamps[i] += offsetMillis;
+        }
+    }
+
+    // Linear correction of the voltage and current channels; power follows from the corrected values
+    public void calibrate(double voltageScale, double voltageOffset, double currentScale, double currentOffset) {
+        for (int i = 0; i < size; i++) {
+            double v = voltage[i] * voltageScale + voltageOffset;
+            double c = current[i] * currentScale + currentOffset;
+            voltage[i] = v;
+            current[i] = c;
+            power[i] = v * c;
+        }
+    }
+
+    public boolean isSorted() {
+        for (int i = 1; i < size; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Stable sort by timestamp; a no-op for the common already-ordered case
+    public void sortByTimestamp() {
+        if (isSorted()) {
+            return;
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], 0, size);
+        long[] t = new long[timestamps.length];
+        double[] v = new double[voltage.length];
+        double[] c = new double[current.length];
+        double[] p = new double[power.length];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            t[i] = timestamps[from];
+            v[i] = voltage[from];
+            c[i] = current[from];
+            p[i] = power[from];
+        }
+        timestamps = t;
+        voltage = v;
+        current = c;
+        power = p;
+    }
+
+    // Boxed view for API responses that still expose ECUStatus objects
+    public List<ECUStatus> toStatusList() {
+        List<ECUStatus> statuses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ECUStatus status = new ECUStatus();
+            status.setTimestamp(Instant.ofEpochMilli(timestamps[i]));
+            status.setVoltage(voltage[i]);
+            status.setCurrent(current[i]);
+            status.setPower(power[i]);
+            statuses.add(status);
+        }
+        return statuses;
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity <= timestamps.length) {
+            return;
+        }
+        int capacity = Math.max(minCapacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        voltage = Arrays.copyOf(voltage, capacity);
+        current = Arrays.copyOf(current, capacity);
+        power = Arrays.copyOf(power, capacity);
+    }
+
+    private void mergeSort(int[] order, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(order, scratch, from, mid);
+        mergeSort(order, scratch, mid, to);
+        if (timestamps[order[mid - 1]] <= timestamps[order[mid]]) {
+            return;
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && timestamps[scratch[left]] <= timestamps[scratch[right]])) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    // Writes [{"timestamp": ISO-8601, "voltage", "current", "power"}, ...] straight from the arrays
+    public static class Serializer extends StdSerializer<SampleSeries> {
+        public Serializer() {
+            super(SampleSeries.class);
+        }
+
+        @Override
+        public void serialize(SampleSeries series, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < series.size; i++) {
+                gen.writeStartObject();
+                gen.writeStringField("timestamp", Instant.ofEpochMilli(series.timestamps[i]).toString());
+                gen.writeNumberField("voltage", series.voltage[i]);
+                gen.writeNumberField("current", series.current[i]);
+                gen.writeNumberField("power", series.power[i]);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
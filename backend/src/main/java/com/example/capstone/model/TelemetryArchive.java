@@ -0,0 +1,54 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Catalog entry for one ECU's samples in one event, moved out of the hot store into a
+// GorillaCodec blob. Once the entry exists the blob is authoritative for (windowStart, windowEnd).
+@Data
+@Document(collection = "telemetry_archives")
+@CompoundIndex(name = "ecu_event", def = "{'ecuId': 1, 'eventId': 1}", unique = true)
+public class TelemetryArchive {
+    public static final String STORAGE_GRIDFS = "gridfs";
+    public static final String STORAGE_LOCAL = "local";
+
+    @Id
+    private String id;
+
+    @NotBlank
+    private String ecuId;
+
+    @NotBlank
+    private String eventId;
+
+    @NotBlank
+    private String competitionId;
+
+    // Event window at archive time; samples strictly inside it are in the blob
+    @NotNull
+    private Instant windowStart;
+
+    @NotNull
+    private Instant windowEnd;
+
+    @NotNull
+    private Integer sampleCount;
+
+    // gridfs or local
+    @NotBlank
+    private String storage;
+
+    // GridFS file id or file name under telemetry.retention.local-dir; null when sampleCount is 0
+    private String location;
+
+    // False until the hot copy has been removed; the retention sweep retries until it is
+    private boolean hotDeleted;
+
+    private Instant archivedAt;
+}
@@ -0,0 +1,36 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Aggregate of one ECU's samples in [bucketStart, bucketStart + resolution seconds), kept at the
+// resolutions in TelemetryRollupService.RESOLUTIONS_SECONDS by TelemetryRollupService. Values are
+// calibrated like every sample that is read.
+@Data
+@Document(collection = "telemetry_rollups")
+@CompoundIndex(name = "ecu_resolution_start", def = "{'ecuId': 1, 'resolution': 1, 'bucketStart': 1}", unique = true)
+public class TelemetryRollup {
+    @Id
+    private String id;
+
+    @NotBlank
+    private String ecuId;
+
+    // Seconds
+    private int resolution;
+
+    private Instant bucketStart;
+
+    private long count;
+
+    private ChannelRollup voltage = new ChannelRollup();
+
+    private ChannelRollup current = new ChannelRollup();
+
+    private ChannelRollup power = new ChannelRollup();
+}
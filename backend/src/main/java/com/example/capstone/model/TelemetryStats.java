@@ -0,0 +1,72 @@
+package com.example.capstone.model;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Summary statistics for one ECU, either over everything it has recorded (eventId null) or
+// within one event. Maintained on the ingest path by TelemetryStatsService.
+@Data
+@Document(collection = "telemetry_stats")
+@CompoundIndex(name = "ecu_event", def = "{'ecuId': 1, 'eventId': 1}", unique = true)
+public class TelemetryStats {
+    @Id
+    private String id;
+
+    @NotBlank
+    private String ecuId;
+
+    private String eventId;
+
+    private ChannelStats voltage = new ChannelStats();
+
+    private ChannelStats current = new ChannelStats();
+
+    private ChannelStats power = new ChannelStats();
+
+    private Double peakPower;
+
+    private Instant peakPowerAt;
+
+    private Instant firstSampleAt;
+
+    private Instant lastSampleAt;
+
+    private Instant updatedAt;
+
+    public void add(long timestamp, double voltageValue, double currentValue, double powerValue) {
+        voltage.add(voltageValue);
+        current.add(currentValue);
+        power.add(powerValue);
+        if (peakPower == null || powerValue > peakPower) {
+            peakPower = powerValue;
+            peakPowerAt = Instant.ofEpochMilli(timestamp);
+        }
+        if (firstSampleAt == null || timestamp < firstSampleAt.toEpochMilli()) {
+            firstSampleAt = Instant.ofEpochMilli(timestamp);
+        }
+        if (lastSampleAt == null || timestamp > lastSampleAt.toEpochMilli()) {
+            lastSampleAt = Instant.ofEpochMilli(timestamp);
+        }
+    }
+
+    public TelemetryStats copy() {
+        TelemetryStats copy = new TelemetryStats();
+        copy.id = id;
+        copy.ecuId = ecuId;
+        copy.eventId = eventId;
+        copy.voltage = voltage.copy();
+        copy.current = current.copy();
+        copy.power = power.copy();
+        copy.peakPower = peakPower;
+        copy.peakPowerAt = peakPowerAt;
+        copy.firstSampleAt = firstSampleAt;
+        copy.lastSampleAt = lastSampleAt;
+        copy.updatedAt = updatedAt;
+        return copy;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.capstone.repository;
+
+import com.example.capstone.model.ECULogUpload;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ECULogUploadRepository extends MongoRepository<ECULogUpload, String> {
+	List<ECULogUpload> findBySerialNumber(String serialNumber);
+	List<ECULogUpload> findByStatus(String status);
+	List<ECULogUpload> findByStatusAndUpdatedAtBefore(String status, Instant updatedAt);
+}
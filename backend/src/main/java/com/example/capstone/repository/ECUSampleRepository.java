@@ -0,0 +1,17 @@
+package com.example.capstone.repository;
+
+import com.example.capstone.model.ECUSample;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ECUSampleRepository extends MongoRepository<ECUSample, String> {
+
+	List<ECUSample> findByEcuIdOrderByTimestampAsc(String ecuId);
+
+	// Between is exclusive on both bounds, matching the isAfter/isBefore event window checks
+	List<ECUSample> findByEcuIdAndTimestampBetweenOrderByTimestampAsc(String ecuId, Instant from, Instant to);
+}
@@ -0,0 +1,53 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.ECU;
+import com.example.capstone.model.ECUCalibration;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.util.ECURecordUtil;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory copy of each ECU's calibration. Samples are stored at the nominal conversion, which
+// is a fixed multiple of the ADC counts, and calibrated on their way out of ECUSampleStore; a new
+// calibration therefore applies to everything already recorded.
+@Service
+public class ECUCalibrationRegistry {
+    private final Map<String, ECUCalibration> calibrations = new ConcurrentHashMap<>();
+    private final MongoTemplate mongoTemplate;
+
+    public ECUCalibrationRegistry(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public ECUCalibration get(String ecuId) {
+        return calibrations.computeIfAbsent(ecuId, this::load);
+    }
+
+    public void put(String ecuId, ECUCalibration calibration) {
+        calibrations.put(ecuId, calibration);
+    }
+
+    // Converts nominal values in place; a no-op for ECUs on the nominal conversion
+    public void apply(String ecuId, SampleSeries samples) {
+        ECUCalibration calibration = get(ecuId);
+        double voltageScale = calibration.getVoltsPerCount() / ECURecordUtil.NOMINAL_VOLTS_PER_COUNT;
+        double currentScale = calibration.getAmpsPerCount() / ECURecordUtil.NOMINAL_AMPS_PER_COUNT;
+        if (voltageScale == 1 && currentScale == 1
+                && calibration.getVoltageOffset() == 0 && calibration.getCurrentOffset() == 0) {
+            return;
+        }
+        samples.calibrate(voltageScale, calibration.getVoltageOffset(), currentScale, calibration.getCurrentOffset());
+    }
+
+    private ECUCalibration load(String ecuId) {
+        Query query = Query.query(Criteria.where("id").is(ecuId));
+        query.fields().include("calibration");
+        ECU ecu = mongoTemplate.findOne(query, ECU.class);
+        return ecu == null || ecu.getCalibration() == null ? new ECUCalibration() : ecu.getCalibration();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.capstone.service;
+
+import com.example.capstone.dto.ECUHealthDTO;
+import com.example.capstone.model.ECU;
+import com.example.capstone.model.SampleSeries;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Live view of every ECU that has talked to this server since it started, kept up to date by the
+// register and chunk paths so dashboards can poll it instead of fetching samples. One small entry
+// per serial number; nothing is persisted.
+@Service
+public class ECUHealthRegistry {
+    public static final int RATE_WINDOW_SECONDS = 10;
+
+    private final Map<String, Health> entries = new ConcurrentHashMap<>();
+    private final ECUCalibrationRegistry calibrations;
+
+    public ECUHealthRegistry(ECUCalibrationRegistry calibrations) {
+        this.calibrations = calibrations;
+    }
+
+    public void onRegister(ECU ecu) {
+        Health health = get(ecu.getSerialNumber());
+        synchronized (health) {
+            health.ecuId = ecu.getId();
+            health.sessionStartedAt = Instant.now();
+            health.lastSeenMillis = System.currentTimeMillis();
+        }
+    }
+
+    // samples are already placed in time; called once the chunk is accepted
+    public void onChunk(String serialNumber, String ecuId, SampleSeries samples) {
+        Health health = get(serialNumber);
+        long now = System.currentTimeMillis();
+        synchronized (health) {
+            health.ecuId = ecuId;
+            health.lastSeenMillis = now;
+            health.countSamples(now / 1000, samples.size());
+            if (!samples.isEmpty()) {
+                int last = samples.size() - 1;
+                health.ingestLagMillis = now - samples.timestampAt(last);
+                health.lastSample = new SampleSeries(1);
+                health.lastSample.addRange(samples, last, last + 1);
+            }
+        }
+    }
+
+    // Only counted for ECUs that have registered or sent a chunk since the server started, so
+    // rejected chunks from unknown serials cannot grow the registry
+    public void onChunkError(String serialNumber) {
+        Health health = entries.get(serialNumber);
+        if (health == null) {
+            return;
+        }
+        synchronized (health) {
+            health.lastSeenMillis = System.currentTimeMillis();
+            health.chunkErrors++;
+        }
+    }
+
+    public List<ECUHealthDTO> getHealth() {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        List<ECUHealthDTO> result = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Health> entry : entries.entrySet()) {
+            Health health = entry.getValue();
+            SampleSeries last = null;
+            ECUHealthDTO dto;
+            synchronized (health) {
+                dto = new ECUHealthDTO(entry.getKey(), health.ecuId, health.sessionStartedAt,
+                        health.lastSeenMillis == 0 ? null : Instant.ofEpochMilli(health.lastSeenMillis),
+                        health.samplesPerSecond(nowSecond), health.ingestLagMillis, health.chunkErrors,
+                        null, null, null, null);
+                if (health.lastSample != null) {
+                    last = new SampleSeries(1);
+                    last.addAll(health.lastSample);
+                }
+            }
+            // Stored at the nominal conversion like every sample; see ECUCalibrationRegistry
+            if (last != null && dto.getEcuId() != null) {
+                calibrations.apply(dto.getEcuId(), last);
+                dto.setLastSampleAt(Instant.ofEpochMilli(last.timestampAt(0)));
+                dto.setVoltage(last.voltageAt(0));
+                dto.setCurrent(last.currentAt(0));
+                dto.setPower(last.powerAt(0));
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private Health get(String serialNumber) {
+        return entries.computeIfAbsent(serialNumber, serial -> new Health());
+    }
+
+    private static final class Health {
+        private String ecuId;
+        private Instant sessionStartedAt;
+        private long lastSeenMillis;
+        private Long ingestLagMillis;
+        private long chunkErrors;
+        private SampleSeries lastSample;
+        // Samples received per wall-clock second: the rate window plus the second still filling up
+        private final long[] slotSecond = new long[RATE_WINDOW_SECONDS + 1];
+        private final long[] slotSamples = new long[RATE_WINDOW_SECONDS + 1];
+
+        private void countSamples(long second, int samples) {
+            int slot = (int) (second % slotSecond.length);
+            if (slotSecond[slot] != second) {
+                slotSecond[slot] = second;
+                slotSamples[slot] = 0;
+            }
+            slotSamples[slot] += samples;
+        }
+
+        // The current second is still filling up, so the window is the RATE_WINDOW_SECONDS before it
+        private double samplesPerSecond(long nowSecond) {
+            long total = 0;
+            for (int slot = 0; slot < slotSecond.length; slot++) {
+                long age = nowSecond - slotSecond[slot];
+                if (age >= 1 && age <= RATE_WINDOW_SECONDS) {
+                    total += slotSamples[slot];
+                }
+            }
+            return (double) total / RATE_WINDOW_SECONDS;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.capstone.service;
+
+import java.time.Instant;
+
+// Everything chunk ingest needs to know about an ECU between register calls. Held in memory by
+// ECUIngestContextRegistry so bulk requests never have to look the ECU document up.
+public class ECUIngestContext {
+    private final String ecuId;
+    private final String serialNumber;
+    private final String sessionToken;
+    private final Instant startedRecordingAt;
+
+    private Long lastChunkSeq;
+    private Long previousChunkSeq;
+    private volatile long lastSeenMillis = System.currentTimeMillis();
+
+    public ECUIngestContext(String ecuId, String serialNumber, String sessionToken,
+                            Instant startedRecordingAt, Long lastChunkSeq) {
+        this.ecuId = ecuId;
+        this.serialNumber = serialNumber;
+        this.sessionToken = sessionToken;
+        this.startedRecordingAt = startedRecordingAt;
+        this.lastChunkSeq = lastChunkSeq;
+    }
+
+    public String getEcuId() {
+        return ecuId;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public Instant getStartedRecordingAt() {
+        return startedRecordingAt;
+    }
+
+    public long getLastSeenMillis() {
+        return lastSeenMillis;
+    }
+
+    public void touch() {
+        lastSeenMillis = System.currentTimeMillis();
+    }
+
+    // Moves the session high-water mark up to seq. False when seq is at or below it,
+    // i.e. a retry of a chunk that was already accepted.
+    public synchronized boolean claimChunk(long seq) {
+        if (lastChunkSeq != null && seq <= lastChunkSeq) {
+            return false;
+        }
+        previousChunkSeq = lastChunkSeq;
+        lastChunkSeq = seq;
+        return true;
+    }
+
+    // Gives seq back when its write failed, so the device's retry is not dropped
+    public synchronized void releaseChunk(long seq) {
+        if (lastChunkSeq != null && lastChunkSeq == seq) {
+            lastChunkSeq = previousChunkSeq;
+        }
+    }
+
+    public synchronized Long getLastChunkSeq() {
+        return lastChunkSeq;
+    }
+}
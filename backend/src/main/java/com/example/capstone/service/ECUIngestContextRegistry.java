@@ -0,0 +1,99 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.ECU;
+import com.example.capstone.model.SampleChunk;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory ingest contexts for ECUs that are currently uploading, keyed by serial number.
+// A context is created by the register handshake and dropped after telemetry.session.idle-minutes
+// without chunks. A chunk for an ECU without a context (server restart, eviction) loads it once
+// from the ECU document. Chunk sequence marks reach the ECU document through persistChunkSeqs,
+// in the same storage write as the chunk's samples, so a restart never forgets an acked chunk.
+@Service
+public class ECUIngestContextRegistry {
+    private final Map<String, ECUIngestContext> contexts = new ConcurrentHashMap<>();
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${telemetry.session.idle-minutes:30}")
+    private long idleMinutes;
+
+    public ECUIngestContextRegistry(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Replaces any previous context for the ECU; called once the register upsert has completed
+    public ECUIngestContext open(ECU ecu) {
+        ECUIngestContext context = toContext(ecu);
+        contexts.put(ecu.getSerialNumber(), context);
+        return context;
+    }
+
+    public ECUIngestContext get(String serialNumber) {
+        ECUIngestContext context = contexts.computeIfAbsent(serialNumber, this::load);
+        context.touch();
+        return context;
+    }
+
+    private ECUIngestContext load(String serialNumber) {
+        Query query = Query.query(Criteria.where("serialNumber").is(serialNumber));
+        query.fields().include("_id", "serialNumber", "startedRecordingAt", "sessionToken", "lastChunkSeq");
+        ECU ecu = mongoTemplate.findOne(query, ECU.class);
+        if (ecu == null) {
+            throw new IllegalArgumentException("ECU not found");
+        }
+        return toContext(ecu);
+    }
+
+    private ECUIngestContext toContext(ECU ecu) {
+        return new ECUIngestContext(ecu.getId(), ecu.getSerialNumber(), ecu.getSessionToken(),
+                ecu.getStartedRecordingAt(), ecu.getLastChunkSeq());
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.session.sweep-ms:30000}")
+    public void sweep() {
+        long idleBefore = System.currentTimeMillis() - idleMinutes * 60_000;
+        for (ECUIngestContext context : contexts.values()) {
+            if (context.getLastSeenMillis() < idleBefore) {
+                contexts.remove(context.getSerialNumber(), context);
+            }
+        }
+    }
+
+    // Called by the sample store once a batch's samples are stored, one bulk update per batch.
+    // $max keeps batches finishing out of order from moving a mark back, and the session filter
+    // keeps a mark out of a newer registration.
+    public void persistChunkSeqs(List<SampleChunk> chunks) {
+        BulkOperations bulk = null;
+        for (SampleChunk chunk : chunks) {
+            if (chunk.getSeq() == null) {
+                continue;
+            }
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ECU.class);
+            }
+            Query query = Query.query(Criteria.where("_id").is(chunk.getEcuId())
+                    .and("sessionToken").is(chunk.getSessionToken()));
+            bulk.updateOne(query, new Update().max("lastChunkSeq", chunk.getSeq()));
+        }
+        if (bulk == null) {
+            return;
+        }
+        // The samples are already stored; a lost mark only means a retried chunk may be stored twice
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            System.err.println("[ERROR] Could not save chunk sequence marks: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.ECULogUpload;
+import com.example.capstone.model.SampleChunk;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.repository.ECULogUploadRepository;
+import com.example.capstone.util.ECURecordUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Resumable upload of a whole on-device <HHH> log (see compsys/INGEST_PROTOCOL.md). Bytes are
+// streamed to a staging file under telemetry.upload.dir with ranged PUTs; once the declared size
+// has arrived the file is cut into fixed-size segments that are decoded and bulk-inserted in
+// parallel. Each inserted segment is recorded on the upload, so a failed import can be retried
+// without inserting the finished segments twice. The staging file is deleted when the import
+// completes, or once a failed upload has gone telemetry.upload.failed-retention-hours without a
+// retry.
+@Service
+public class ECULogUploadService {
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final ECULogUploadRepository uploadRepository;
+    private final ECUIngestContextRegistry ingestContexts;
+    private final ECUSampleStore ecuSampleStore;
+    private final MongoTemplate mongoTemplate;
+    private final ConcurrentHashMap<String, Object> uploadLocks = new ConcurrentHashMap<>();
+
+    @Value("${telemetry.upload.dir:telemetry-uploads}")
+    private String uploadDir;
+
+    @Value("${telemetry.upload.segment-records:100000}")
+    private int segmentRecords;
+
+    @Value("${telemetry.upload.parse-threads:4}")
+    private int parseThreads;
+
+    @Value("${telemetry.upload.failed-retention-hours:24}")
+    private long failedRetentionHours;
+
+    // Imports run one at a time; each one fans its segments out over segmentExecutor
+    private ExecutorService importExecutor;
+    private ExecutorService segmentExecutor;
+
+    public ECULogUploadService(ECULogUploadRepository uploadRepository, ECUIngestContextRegistry ingestContexts,
+                               ECUSampleStore ecuSampleStore, MongoTemplate mongoTemplate) {
+        this.uploadRepository = uploadRepository;
+        this.ingestContexts = ingestContexts;
+        this.ecuSampleStore = ecuSampleStore;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(uploadDir));
+        importExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "ecu-log-import"));
+        segmentExecutor = Executors.newFixedThreadPool(parseThreads);
+        // The finished segments are recorded, so a retry picks up where the import stopped
+        for (ECULogUpload upload : uploadRepository.findByStatus(ECULogUpload.PARSING)) {
+            upload.setStatus(ECULogUpload.FAILED);
+            upload.setError("Import interrupted by a server restart after " + upload.getParsedSegments()
+                    + " of " + upload.getTotalSegments() + " segments");
+            uploadRepository.save(upload);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+        segmentExecutor.shutdownNow();
+    }
+
+    // startedRecordingAt defaults to the origin of the ECU's latest register call, which is the
+    // session the on-device log was recorded in
+    public ECULogUpload createUpload(String serialNumber, long totalBytes, Instant startedRecordingAt) throws IOException {
+        if (totalBytes <= 0 || totalBytes % ECURecordUtil.RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Log size must be a positive multiple of " + ECURecordUtil.RECORD_SIZE + " bytes");
+        }
+        ECUIngestContext context = ingestContexts.get(serialNumber);
+        ECULogUpload upload = new ECULogUpload();
+        upload.setSerialNumber(serialNumber);
+        upload.setEcuId(context.getEcuId());
+        upload.setStartedRecordingAt(startedRecordingAt != null ? startedRecordingAt : context.getStartedRecordingAt());
+        upload.setTotalBytes(totalBytes);
+        upload.setStatus(ECULogUpload.RECEIVING);
+        upload = uploadRepository.save(upload);
+        Files.createFile(dataFile(upload.getId()));
+        return upload;
+    }
+
+    public ECULogUpload getUpload(String uploadId) {
+        return uploadRepository.findById(uploadId).orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+    }
+
+    public List<ECULogUpload> getUploadsForECU(String serialNumber) {
+        return uploadRepository.findBySerialNumber(serialNumber);
+    }
+
+    // Streams the body to the staging file at offset; a null offset appends to what is already
+    // there. Whatever arrived before a dropped connection is kept and counted.
+    public ECULogUpload append(String uploadId, Long offset, InputStream body) throws IOException {
+        synchronized (uploadLocks.computeIfAbsent(uploadId, id -> new Object())) {
+            ECULogUpload upload = getUpload(uploadId);
+            if (!ECULogUpload.RECEIVING.equals(upload.getStatus())) {
+                throw new IllegalArgumentException("Upload is " + upload.getStatus() + ", not accepting data");
+            }
+            Path file = dataFile(uploadId);
+            long stored = Files.size(file);
+            long start = offset != null ? offset : stored;
+            if (start != stored) {
+                throw new UploadOffsetException(stored, start);
+            }
+            try {
+                copy(body, file, start, upload.getTotalBytes());
+            } finally {
+                upload.setReceivedBytes(Files.size(file));
+                if (upload.getReceivedBytes() == upload.getTotalBytes()) {
+                    upload.setStatus(ECULogUpload.PARSING);
+                }
+                upload = uploadRepository.save(upload);
+            }
+            if (ECULogUpload.PARSING.equals(upload.getStatus())) {
+                ECULogUpload toImport = upload;
+                importExecutor.submit(() -> importLog(toImport));
+            }
+            return upload;
+        }
+    }
+
+    // Imports the segments of a FAILED upload that were not inserted before it failed
+    public ECULogUpload retry(String uploadId) {
+        synchronized (uploadLocks.computeIfAbsent(uploadId, id -> new Object())) {
+            ECULogUpload upload = getUpload(uploadId);
+            if (!ECULogUpload.FAILED.equals(upload.getStatus())) {
+                throw new IllegalArgumentException("Upload is " + upload.getStatus() + ", only a FAILED upload can be retried");
+            }
+            if (!Files.exists(dataFile(uploadId))) {
+                throw new IllegalArgumentException("Staging file for upload " + uploadId + " is gone; upload the log again");
+            }
+            upload.setStatus(ECULogUpload.PARSING);
+            upload.setError(null);
+            upload = uploadRepository.save(upload);
+            ECULogUpload toImport = upload;
+            importExecutor.submit(() -> importLog(toImport));
+            return upload;
+        }
+    }
+
+    // Staging files are the size of a whole log, so failed uploads nobody retries don't keep theirs
+    @Scheduled(fixedDelayString = "${telemetry.upload.sweep-ms:3600000}")
+    public void expireFailedUploads() {
+        Instant cutoff = Instant.now().minusSeconds(failedRetentionHours * 3600);
+        for (ECULogUpload candidate : uploadRepository.findByStatusAndUpdatedAtBefore(ECULogUpload.FAILED, cutoff)) {
+            synchronized (uploadLocks.computeIfAbsent(candidate.getId(), id -> new Object())) {
+                // A retry may have started since the query
+                ECULogUpload upload = getUpload(candidate.getId());
+                if (!ECULogUpload.FAILED.equals(upload.getStatus())) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(dataFile(upload.getId()));
+                    upload.setStatus(ECULogUpload.EXPIRED);
+                    uploadRepository.save(upload);
+                    System.out.println("[INFO] Deleted staging file of failed log upload " + upload.getId());
+                } catch (IOException e) {
+                    System.err.println("[ERROR] Could not delete staging file of log upload " + upload.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void copy(InputStream body, Path file, long start, long totalBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(body)) {
+            channel.position(start);
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_BYTES);
+            long position = start;
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                if (position + buffer.remaining() > totalBytes) {
+                    // Keep the declared size intact; the excess is a client error
+                    buffer.limit(buffer.position() + (int) (totalBytes - position));
+                    position += writeFully(channel, buffer);
+                    channel.force(false);
+                    throw new IllegalArgumentException("Upload is larger than the declared " + totalBytes + " bytes");
+                }
+                position += writeFully(channel, buffer);
+                buffer.clear();
+            }
+            channel.force(false);
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+
+    private void importLog(ECULogUpload upload) {
+        long started = System.currentTimeMillis();
+        Path file = dataFile(upload.getId());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // A retry keeps the first attempt's segment size, so completedSegments still lines up
+            int recordsPerSegment = upload.getSegmentRecords() > 0 ? upload.getSegmentRecords() : segmentRecords;
+            long segmentBytes = (long) recordsPerSegment * ECURecordUtil.RECORD_SIZE;
+            long size = channel.size();
+            List<ByteBuffer> segments = new ArrayList<>();
+            for (long position = 0; position < size; position += segmentBytes) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentBytes, size - position)));
+            }
+            Set<Integer> completed = upload.getCompletedSegments();
+            updateProgress(upload.getId(), new Update().set("totalSegments", segments.size())
+                    .set("segmentRecords", recordsPerSegment).set("parsedSegments", completed.size()));
+
+            // The clock state at each segment start needs every record before it, so this one
+            // cheap pass is sequential; decoding and inserting is what runs in parallel
+            long[][] clockAtStart = new long[segments.size()][];
+            long[] clock = {-1, 0};
+            for (int i = 0; i < segments.size(); i++) {
+                clockAtStart[i] = clock;
+                clock = ECURecordUtil.countWraps(segments.get(i), (int) clock[0], clock[1]);
+            }
+
+            long origin = upload.getStartedRecordingAt().toEpochMilli();
+            List<CompletableFuture<Void>> imports = new ArrayList<>();
+            for (int i = 0; i < segments.size(); i++) {
+                if (completed.contains(i)) {
+                    continue;
+                }
+                int index = i;
+                ByteBuffer segment = segments.get(i);
+                long[] clockState = clockAtStart[i];
+                imports.add(CompletableFuture.runAsync(() -> {
+                    SampleSeries samples = ECURecordUtil.decodeLogSegment(segment, (int) clockState[0], clockState[1]);
+                    samples.shiftTimestamps(origin);
+                    ecuSampleStore.insert(List.of(new SampleChunk(upload.getEcuId(), samples)));
+                    updateProgress(upload.getId(), new Update().addToSet("completedSegments", index)
+                            .inc("parsedSegments", 1).inc("insertedSamples", samples.size()));
+                }, segmentExecutor));
+            }
+            // Every segment runs to the end even if one fails, so as many as possible are recorded
+            CompletableFuture.allOf(imports.toArray(new CompletableFuture[0])).join();
+
+            updateProgress(upload.getId(), new Update().set("status", ECULogUpload.COMPLETE));
+            Files.deleteIfExists(file);
+            System.out.println("[INFO] Imported " + size / ECURecordUtil.RECORD_SIZE + " samples from log upload "
+                    + upload.getId() + " in " + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("[ERROR] Log upload " + upload.getId() + " failed to import: " + cause.getMessage());
+            updateProgress(upload.getId(), new Update().set("status", ECULogUpload.FAILED).set("error", cause.getMessage()));
+        }
+    }
+
+    private void updateProgress(String uploadId, Update update) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(uploadId)),
+                update.set("updatedAt", Instant.now()), ECULogUpload.class);
+    }
+
+    private Path dataFile(String uploadId) {
+        return Paths.get(uploadDir, uploadId + ".log");
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleChunk;
+import com.example.capstone.model.SampleRun;
+import com.example.capstone.model.SampleSeries;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Reads and writes ECU samples through the configured TelemetryStore and the archive. Values are stored at the
+// nominal ADC conversion; reads and write listeners see them after the ECU's calibration has
+// been applied.
+@Service
+public class ECUSampleStore {
+    private final TelemetryStore telemetryStore;
+    private final EventWindowIndex eventWindows;
+    private final ECUCalibrationRegistry calibrations;
+    private final TelemetryArchiveService archives;
+    private final ECUIngestContextRegistry ingestContexts;
+    private final List<WriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    // Smoothed duration of a write() call, read by IngestFlowControl
+    private volatile double writeMillisEwma;
+
+    // Told about every run of samples once it is stored, one call per ECU and event (eventId may
+    // be null). Runs for one ECU within a write are in timestamp order, but a later write can
+    // carry samples older than ones already reported (late chunks, log imports).
+    public interface WriteListener {
+        void onStored(String ecuId, String eventId, SampleSeries samples, int from, int to);
+    }
+
+    public ECUSampleStore(TelemetryStore telemetryStore, EventWindowIndex eventWindows, ECUCalibrationRegistry calibrations,
+                          TelemetryArchiveService archives, ECUIngestContextRegistry ingestContexts) {
+        this.telemetryStore = telemetryStore;
+        this.ingestContexts = ingestContexts;
+        this.eventWindows = eventWindows;
+        this.calibrations = calibrations;
+        this.archives = archives;
+    }
+
+    public void write(List<SampleChunk> chunks) {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            insert(chunks);
+        } finally {
+            // Only the ingest writer thread calls write, so the read-modify-write needs no lock
+            double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+            writeMillisEwma = writeMillisEwma == 0 ? elapsedMillis : 0.8 * writeMillisEwma + 0.2 * elapsedMillis;
+        }
+    }
+
+    // For chunks replayed after a crash, some of which may have been stored just before it: drops
+    // samples whose timestamp is already stored for the ECU, then writes the rest
+    public void writeRecovered(List<SampleChunk> chunks) {
+        write(unstored(chunks));
+    }
+
+    // Same as writeRecovered for callers other than the ingest writer, such as data migrations
+    public void insertMissing(List<SampleChunk> chunks) {
+        insert(unstored(chunks));
+    }
+
+    private List<SampleChunk> unstored(List<SampleChunk> chunks) {
+        List<SampleChunk> fresh = new ArrayList<>(chunks.size());
+        for (SampleChunk chunk : chunks) {
+            SampleSeries samples = chunk.getSamples();
+            if (samples.isEmpty()) {
+                continue;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < samples.size(); i++) {
+                min = Math.min(min, samples.timestampAt(i));
+                max = Math.max(max, samples.timestampAt(i));
+            }
+            SampleSeries stored = telemetryStore.findRange(chunk.getEcuId(), Instant.ofEpochMilli(min - 1), Instant.ofEpochMilli(max + 1));
+            SampleSeries missing = new SampleSeries(samples.size());
+            for (int i = 0; i < samples.size(); i++) {
+                if (!stored.containsTimestamp(samples.timestampAt(i))) {
+                    missing.addRange(samples, i, i + 1);
+                }
+            }
+            // Kept even when every sample was stored, as the chunk's seq mark may not have been
+            if (!missing.isEmpty() || chunk.getSeq() != null) {
+                fresh.add(new SampleChunk(chunk.getEcuId(), missing, chunk.getSessionToken(), chunk.getSeq()));
+            }
+        }
+        return fresh;
+    }
+
+    public double getWriteMillisEwma() {
+        return writeMillisEwma;
+    }
+
+    // Same as write, but not counted in the ingest write latency; used for bulk log imports,
+    // which may call it from several threads at once
+    public void insert(List<SampleChunk> chunks) {
+        // The batch is the reorder window: each ECU's chunks are merged into one time-ordered run
+        // before anything is stored, so a reconnect that sends buffered chunks after live ones
+        // still lands in order when both arrive together
+        Map<String, SampleSeries> byEcu = new LinkedHashMap<>();
+        for (SampleChunk chunk : chunks) {
+            byEcu.computeIfAbsent(chunk.getEcuId(), id -> new SampleSeries()).addAll(chunk.getSamples());
+        }
+        List<SampleRun> runs = new ArrayList<>();
+        for (Map.Entry<String, SampleSeries> entry : byEcu.entrySet()) {
+            entry.getValue().sortByTimestamp();
+            cutByEvent(entry.getKey(), entry.getValue(), runs);
+        }
+        if (!runs.isEmpty()) {
+            telemetryStore.write(runs);
+        }
+        ingestContexts.persistChunkSeqs(chunks);
+
+        // Stored runs point into these series, so listeners see calibrated values
+        for (Map.Entry<String, SampleSeries> entry : byEcu.entrySet()) {
+            calibrations.apply(entry.getKey(), entry.getValue());
+        }
+        // The samples are stored at this point; a failing listener must not make the caller retry the write
+        for (SampleRun run : runs) {
+            for (WriteListener listener : writeListeners) {
+                try {
+                    listener.onStored(run.getEcuId(), run.getEventId(), run.getSamples(), run.getFrom(), run.getTo());
+                } catch (RuntimeException e) {
+                    System.err.println("[ERROR] Sample write listener failed for ECU " + run.getEcuId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Splits one ECU's time-ordered samples wherever the sample's event changes
+    private void cutByEvent(String ecuId, SampleSeries samples, List<SampleRun> runs) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        String eventId = eventWindows.eventAt(ecuId, samples.timestampAt(0));
+        for (int i = 1; i <= samples.size(); i++) {
+            String nextEventId = i == samples.size() ? null : eventWindows.eventAt(ecuId, samples.timestampAt(i));
+            if (i == samples.size() || !Objects.equals(nextEventId, eventId)) {
+                runs.add(new SampleRun(ecuId, eventId, samples, start, i));
+                start = i;
+                eventId = nextEventId;
+            }
+        }
+    }
+
+    public void addWriteListener(WriteListener listener) {
+        writeListeners.add(listener);
+    }
+
+    // Samples strictly between from and to, ordered by timestamp, read through the archive for
+    // events that have been moved out of the hot store
+    public SampleSeries findRange(String ecuId, Instant from, Instant to) {
+        SampleSeries series = archives.readThrough(ecuId, from.toEpochMilli(), to.toEpochMilli(),
+                telemetryStore.findRange(ecuId, from, to));
+        calibrations.apply(ecuId, series);
+        return series;
+    }
+
+    public SampleSeries findAll(String ecuId) {
+        SampleSeries series = archives.readThrough(ecuId, Long.MIN_VALUE, Long.MAX_VALUE, telemetryStore.findAll(ecuId));
+        calibrations.apply(ecuId, series);
+        return series;
+    }
+}
@@ -1,50 +1,121 @@
 package com.example.capstone.service;
 
-import com.example.capstone.dto.ECUStatusDTO;
+import com.example.capstone.dto.ChunkAckDTO;
+import com.example.capstone.dto.ECUSummaryDTO;
+import com.example.capstone.dto.TelemetryRollupSeriesDTO;
 import com.example.capstone.model.*;
 import com.example.capstone.repository.ECURepository;
 import com.example.capstone.repository.EventRepository;
 import com.example.capstone.repository.VehicleRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class ECUService {
     private final ECURepository ecuRepository;
     private final VehicleRepository vehicleRepository;
     private final EventRepository eventRepository;
+    private final ECUSampleStore ecuSampleStore;
+    private final MongoTemplate mongoTemplate;
+    private final TelemetryIngestStage ingestStage;
+    private final ECUIngestContextRegistry ingestContexts;
+    private final EventWindowIndex eventWindows;
+    private final TelemetryStatsService telemetryStatsService;
+    private final EnergyAccumulatorService energyAccumulatorService;
+    private final ECUCalibrationRegistry calibrations;
+    private final ECUHealthRegistry healthRegistry;
+    private final TelemetryRollupService rollupService;
 
-    public ECUService(ECURepository ecuRepository, VehicleRepository vehicleRepository, EventRepository eventRepository) {
+    public ECUService(ECURepository ecuRepository, VehicleRepository vehicleRepository, EventRepository eventRepository,
+                      ECUSampleStore ecuSampleStore, MongoTemplate mongoTemplate,
+                      TelemetryIngestStage ingestStage, ECUIngestContextRegistry ingestContexts,
+                      EventWindowIndex eventWindows, TelemetryStatsService telemetryStatsService,
+                      EnergyAccumulatorService energyAccumulatorService, ECUCalibrationRegistry calibrations,
+                      ECUHealthRegistry healthRegistry, TelemetryRollupService rollupService) {
         this.ecuRepository = ecuRepository;
 		this.vehicleRepository = vehicleRepository;
 		this.eventRepository = eventRepository;
+		this.ecuSampleStore = ecuSampleStore;
+		this.mongoTemplate = mongoTemplate;
+		this.ingestStage = ingestStage;
+		this.ingestContexts = ingestContexts;
+		this.eventWindows = eventWindows;
+		this.telemetryStatsService = telemetryStatsService;
+		this.energyAccumulatorService = energyAccumulatorService;
+		this.calibrations = calibrations;
+		this.healthRegistry = healthRegistry;
+		this.rollupService = rollupService;
 	}
 
+    // The dashboard still reads ecuStatusList, so API-facing lookups fill it from ecu_samples
     public List<ECU> getAllECUs() {
-        return ecuRepository.findAll();
+        List<ECU> ecus = ecuRepository.findAll();
+        for (ECU ecu : ecus) {
+            ecu.setEcuStatusList(getECUStatusList(ecu.getId()));
+        }
+        return ecus;
+    }
+
+    // Only the fields a list needs, so no ECU's status list is read
+    public List<ECUSummaryDTO> getECUSummaries() {
+        Query query = new Query();
+        query.fields().include("_id", "serialNumber", "vehicleId");
+        List<ECUSummaryDTO> summaries = new ArrayList<>();
+        for (ECU ecu : mongoTemplate.find(query, ECU.class)) {
+            summaries.add(new ECUSummaryDTO(ecu.getId(), ecu.getSerialNumber(), ecu.getVehicleId()));
+        }
+        return summaries;
     }
 
     public ECU getECUById(String id) {
+        ECU ecu = findECUById(id);
+        ecu.setEcuStatusList(getECUStatusList(id));
+        return ecu;
+    }
+
+    private ECU findECUById(String id) {
         return ecuRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("ECU not found"));
     }
 
+    private List<ECUStatus> getECUStatusList(String ecuId) {
+        return ecuSampleStore.findAll(ecuId).toStatusList();
+    }
+
     public ECU createECU(ECU ecu) {
         return ecuRepository.save(ecu);
     }
 
+    // Session handshake: one atomic upsert creates the ECU on first contact or starts a new upload
+    // session with a fresh recording origin, token and chunk numbering, then caches the ingest context
     public ECU registerECU(String serialNumber, Long currentTicks) {
-		ECU ecu;
-		try {
-			ecu = getECUBySerialNumber(serialNumber);
-        } catch(Exception e){
-            ecu = new ECU();
-            ecu.setSerialNumber(serialNumber);
-            ecu.setEcuStatusList(new ArrayList<>());
-        }
-        ecu.setStartedRecordingAt(Instant.now().minusMillis(currentTicks));
-        return ecuRepository.save(ecu);
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("serialNumber").is(serialNumber));
+        Update update = new Update()
+                .set("startedRecordingAt", now.minusMillis(currentTicks))
+                .set("sessionToken", UUID.randomUUID().toString())
+                .set("updatedAt", now)
+                .unset("lastChunkSeq")
+                .setOnInsert("createdAt", now);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        ECU ecu;
+        try {
+            ecu = mongoTemplate.findAndModify(query, update, options, ECU.class);
+        } catch (DuplicateKeyException e) {
+            // Another first registration of this serial inserted in between; this one now updates it
+            ecu = mongoTemplate.findAndModify(query, update, options, ECU.class);
+        }
+        ingestContexts.open(ecu);
+        healthRegistry.onRegister(ecu);
+        return ecu;
     }
 
     public ECU getECUBySerialNumber(String serialNumber) {
@@ -69,7 +140,7 @@ public class ECUService {
     }
 
     public ECU unassignECUFromVehicle(String ecuId) {
-        ECU ecu = getECUById(ecuId);
+        ECU ecu = findECUById(ecuId);
         if (ecu.getVehicleId() == null) {
             throw new IllegalArgumentException("ECU is not assigned to any vehicle");
         }
@@ -85,31 +156,112 @@ public class ECUService {
         return ecu;
     }
 
-    public List<ECUStatus> createBulkECUStatus(List<ECUStatusDTO> ecuStatuses, String serialNumber) {
-        ECU ecu = getECUBySerialNumber(serialNumber);
-        List<ECUStatus> savedECUStatuses = new ArrayList<>();
-        for (ECUStatusDTO ecuStatusDTO : ecuStatuses) {
-            ECUStatus ecuStatus = ecuStatusDTO.toEntity(ecu);
-            savedECUStatuses.add(ecuStatus);
+    // samples are timestamped relative to the ECU's recording origin, as decoded from the
+    // device's JSON or binary chunk body. sessionToken is optional; when given it must be the
+    // one issued by the ECU's latest register call.
+    public ChunkAckDTO createBulkECUStatus(SampleSeries samples, String serialNumber, String sessionToken, Long seq) {
+        ECUIngestContext context = ingestContexts.get(serialNumber);
+        if (sessionToken != null && !sessionToken.equals(context.getSessionToken())) {
+            throw new StaleSessionException(serialNumber);
         }
-        ecu.getEcuStatusList().addAll(savedECUStatuses);
-        ecuRepository.save(ecu);
-        return savedECUStatuses;
+        if (seq != null && !context.claimChunk(seq)) {
+            healthRegistry.onChunk(serialNumber, context.getEcuId(), new SampleSeries(0));
+            return new ChunkAckDTO(seq, true, 0);
+        }
+        samples.shiftTimestamps(context.getStartedRecordingAt().toEpochMilli());
+        ChunkAckDTO ack = saveSamples(context, samples, seq);
+        healthRegistry.onChunk(serialNumber, context.getEcuId(), samples);
+        return ack;
+    }
+
+    // Chunks are append-only inserts, so overlapping chunks from the same ECU cannot clobber
+    // each other. The write itself happens behind the ingest stage (group-commit queue or WAL).
+    private ChunkAckDTO saveSamples(ECUIngestContext context, SampleSeries samples, Long seq) {
+        samples.sortByTimestamp();
+        try {
+            if (!samples.isEmpty()) {
+                ingestStage.submit(new SampleChunk(context.getEcuId(), samples, context.getSessionToken(), seq));
+            }
+        } catch (RuntimeException e) {
+            if (seq != null) {
+                context.releaseChunk(seq);
+            }
+            throw e;
+        }
+        return new ChunkAckDTO(seq, false, samples.size());
     }
 
-    public List<ECUStatus> getECUStatusByEvent(String ecuId, String eventId) {
-        ECU ecu = getECUById(ecuId);
+    // The window normally comes straight from the event index; the database is only consulted to
+    // explain a miss (unknown ECU or event, or an ECU that is not registered for the event)
+    public SampleSeries getECUStatusByEvent(String ecuId, String eventId) {
+        EventWindowIndex.Window window = eventWindows.find(ecuId, eventId);
+        if (window != null) {
+            return ecuSampleStore.findRange(ecuId, window.getStart(), window.getEnd());
+        }
+        if (!ecuRepository.existsById(ecuId)) {
+            throw new IllegalArgumentException("ECU not found");
+        }
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new IllegalArgumentException("Event not found"));
         if (!event.getEcuIds().contains(ecuId)) {
             throw new IllegalArgumentException("ECU not registered for this event");
         }
-        List<ECUStatus> filteredStatuses = new ArrayList<>();
-        for (ECUStatus status : ecu.getEcuStatusList()) {
-            if(status.getTimestamp().isAfter(event.getStartTime()) && status.getTimestamp().isBefore(event.getEndTime())) {
-                filteredStatuses.add(status);
+        return ecuSampleStore.findRange(ecuId, event.getStartTime(), event.getEndTime());
+    }
+
+    // eventId null for the ECU's statistics over everything it has recorded
+    public TelemetryStats getTelemetryStats(String ecuId, String eventId) {
+        if (!ecuRepository.existsById(ecuId)) {
+            throw new IllegalArgumentException("ECU not found");
+        }
+        if (eventId != null && eventWindows.find(ecuId, eventId) == null) {
+            throw new IllegalArgumentException("ECU not registered for this event");
+        }
+        return telemetryStatsService.getStats(ecuId, eventId);
+    }
+
+    // Pre-aggregated buckets at the finest resolution that fits the range in maxPoints
+    public TelemetryRollupSeriesDTO getRollups(String ecuId, Instant from, Instant to, int maxPoints) {
+        if (!ecuRepository.existsById(ecuId)) {
+            throw new IllegalArgumentException("ECU not found");
+        }
+        return rollupService.getRollups(ecuId, from, to, maxPoints);
+    }
+
+    public TelemetryRollupSeriesDTO getRollupsByEvent(String ecuId, String eventId, int maxPoints) {
+        EventWindowIndex.Window window = eventWindows.find(ecuId, eventId);
+        if (window == null) {
+            if (!ecuRepository.existsById(ecuId)) {
+                throw new IllegalArgumentException("ECU not found");
             }
+            throw new IllegalArgumentException("ECU not registered for this event");
+        }
+        return rollupService.getRollups(ecuId, window.getStart(), window.getEnd(), maxPoints);
+    }
+
+    public ECUCalibration getCalibration(String ecuId) {
+        if (!ecuRepository.existsById(ecuId)) {
+            throw new IllegalArgumentException("ECU not found");
+        }
+        return calibrations.get(ecuId);
+    }
+
+    // Takes effect for samples already stored as well; energy totals and statistics are rebuilt
+    public ECUCalibration setCalibration(String ecuId, ECUCalibration calibration) {
+        if (!(calibration.getVoltsPerCount() > 0) || !(calibration.getAmpsPerCount() > 0)
+                || !Double.isFinite(calibration.getVoltsPerCount()) || !Double.isFinite(calibration.getAmpsPerCount())
+                || !Double.isFinite(calibration.getVoltageOffset()) || !Double.isFinite(calibration.getCurrentOffset())) {
+            throw new IllegalArgumentException("Calibration needs positive per-count factors and finite offsets");
+        }
+        Query query = Query.query(Criteria.where("id").is(ecuId));
+        if (mongoTemplate.updateFirst(query, Update.update("calibration", calibration), ECU.class).getMatchedCount() == 0) {
+            throw new IllegalArgumentException("ECU not found");
         }
-        return filteredStatuses;
+        calibrations.put(ecuId, calibration);
+        energyAccumulatorService.rebuildECU(ecuId);
+        telemetryStatsService.rebuildECU(ecuId);
+        rollupService.rebuildECU(ecuId);
+        System.out.println("[INFO] Recalibrated ECU " + ecuId);
+        return calibration;
     }
 
     public List<ECU> getUnregisteredECUs() {
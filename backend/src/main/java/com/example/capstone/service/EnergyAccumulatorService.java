@@ -0,0 +1,300 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.EnergyAccumulator;
+import com.example.capstone.model.Event;
+import com.example.capstone.model.RaceResult;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.Vehicle;
+import com.example.capstone.repository.VehicleRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Running Wh total per (ECU, event), folded in as samples are stored using the same left-Riemann
+// rule the energy calculation has always used: each interval is charged at the power of the
+// sample that starts it. Totals are persisted to energy_accumulators and pushed into the
+// matching RaceResult.energyConsumed every telemetry.energy.persist-ms.
+//
+// An accumulator is rebuilt from the stored samples when it has no persisted state yet, when a
+// sample arrives older than the last one folded in, and when its event is saved (window or
+// registered ECUs may have changed).
+@Service
+public class EnergyAccumulatorService extends AbstractMongoEventListener<Event> {
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private final Map<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+    private final ECUSampleStore ecuSampleStore;
+    private final EventWindowIndex eventWindows;
+    private final MongoTemplate mongoTemplate;
+    private final VehicleRepository vehicleRepository;
+
+    public EnergyAccumulatorService(ECUSampleStore ecuSampleStore, EventWindowIndex eventWindows,
+                                    MongoTemplate mongoTemplate, VehicleRepository vehicleRepository) {
+        this.ecuSampleStore = ecuSampleStore;
+        this.eventWindows = eventWindows;
+        this.mongoTemplate = mongoTemplate;
+        this.vehicleRepository = vehicleRepository;
+        ecuSampleStore.addWriteListener(this::onStored);
+    }
+
+    public double getEnergyWh(String ecuId, String eventId) {
+        Accumulator accumulator = get(ecuId, eventId);
+        if (accumulator.needsRebuild()) {
+            rebuild(accumulator);
+        }
+        return accumulator.energyWh();
+    }
+
+    // Recomputes every accumulator of the event from the stored samples
+    public void rebuildEvent(String eventId) {
+        Event event = mongoTemplate.findById(eventId, Event.class);
+        if (event == null) {
+            throw new IllegalArgumentException("Event not found");
+        }
+        for (String ecuId : event.getEcuIds()) {
+            Accumulator accumulator = get(ecuId, eventId);
+            rebuild(accumulator);
+            persist(accumulator);
+        }
+    }
+
+    // After a recalibration: every total of the ECU is recomputed on the next sweep, including
+    // ones that are only persisted
+    public void rebuildECU(String ecuId) {
+        for (Accumulator accumulator : accumulators.values()) {
+            if (accumulator.ecuId.equals(ecuId)) {
+                accumulator.markForRebuild();
+            }
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("ecuId").is(ecuId)), EnergyAccumulator.class);
+    }
+
+    private void onStored(String ecuId, String eventId, SampleSeries samples, int from, int to) {
+        if (eventId != null) {
+            get(ecuId, eventId).add(samples, from, to);
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Event> saved) {
+        Event event = saved.getSource();
+        if (event.getId() == null || event.getEcuIds() == null) {
+            return;
+        }
+        for (String ecuId : event.getEcuIds()) {
+            get(ecuId, event.getId()).markForRebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.energy.persist-ms:10000}")
+    public void sweep() {
+        for (Accumulator accumulator : accumulators.values()) {
+            try {
+                if (accumulator.needsRebuild()) {
+                    rebuild(accumulator);
+                }
+                persist(accumulator);
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Could not update energy for ECU " + accumulator.ecuId
+                        + " in event " + accumulator.eventId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        for (Accumulator accumulator : accumulators.values()) {
+            persist(accumulator);
+        }
+    }
+
+    private Accumulator get(String ecuId, String eventId) {
+        return accumulators.computeIfAbsent(ecuId + "|" + eventId, key -> load(ecuId, eventId));
+    }
+
+    private Accumulator load(String ecuId, String eventId) {
+        Accumulator accumulator = new Accumulator(ecuId, eventId);
+        EnergyAccumulator stored = mongoTemplate.findOne(accumulatorQuery(ecuId, eventId), EnergyAccumulator.class);
+        if (stored == null) {
+            // Samples may predate the accumulator (ECU registered late, first start after an upgrade)
+            accumulator.markForRebuild();
+        } else {
+            accumulator.restore(stored);
+        }
+        return accumulator;
+    }
+
+    // Reads the event's samples without holding the accumulator, so ingest is never blocked on it;
+    // samples stored meanwhile are parked and folded in on top of the rebuilt total
+    private void rebuild(Accumulator accumulator) {
+        if (!accumulator.beginRebuild()) {
+            return;
+        }
+        Accumulator rebuilt = new Accumulator(accumulator.ecuId, accumulator.eventId);
+        SampleSeries samples = new SampleSeries(0);
+        try {
+            EventWindowIndex.Window window = eventWindows.find(accumulator.ecuId, accumulator.eventId);
+            if (window != null) {
+                samples = ecuSampleStore.findRange(accumulator.ecuId, window.getStart(), window.getEnd());
+                rebuilt.add(samples, 0, samples.size());
+            }
+        } catch (RuntimeException e) {
+            accumulator.abortRebuild();
+            throw e;
+        }
+        accumulator.finishRebuild(rebuilt, samples);
+    }
+
+    private void persist(Accumulator accumulator) {
+        EnergyAccumulator snapshot = accumulator.takeSnapshotIfDirty();
+        if (snapshot == null) {
+            return;
+        }
+        Update update = new Update()
+                .set("energyWh", snapshot.getEnergyWh())
+                .set("lastTimestamp", snapshot.getLastTimestamp())
+                .set("lastPower", snapshot.getLastPower())
+                .set("sampleCount", snapshot.getSampleCount())
+                .set("updatedAt", Instant.now());
+        mongoTemplate.upsert(accumulatorQuery(snapshot.getEcuId(), snapshot.getEventId()), update, EnergyAccumulator.class);
+
+        for (Vehicle vehicle : vehicleRepository.findByEcuIdIsIn(List.of(snapshot.getEcuId()))) {
+            Query result = Query.query(Criteria.where("eventId").is(snapshot.getEventId()).and("vehicleId").is(vehicle.getId()));
+            mongoTemplate.updateFirst(result, Update.update("energyConsumed", snapshot.getEnergyWh()), RaceResult.class);
+        }
+    }
+
+    private static Query accumulatorQuery(String ecuId, String eventId) {
+        return Query.query(Criteria.where("ecuId").is(ecuId).and("eventId").is(eventId));
+    }
+
+    private static final class Accumulator {
+        private final String ecuId;
+        private final String eventId;
+
+        private double energyWh;
+        private long lastTimestamp;
+        private double lastPower;
+        private long sampleCount;
+        private boolean dirty;
+        private boolean needsRebuild;
+        // Non-null while a rebuild is reading samples
+        private SampleSeries parked;
+
+        private Accumulator(String ecuId, String eventId) {
+            this.ecuId = ecuId;
+            this.eventId = eventId;
+        }
+
+        private synchronized void add(SampleSeries samples, int from, int to) {
+            if (parked != null) {
+                parked.addRange(samples, from, to);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                fold(samples.timestampAt(i), samples.powerAt(i));
+            }
+        }
+
+        private void fold(long timestamp, double power) {
+            if (sampleCount > 0) {
+                if (timestamp < lastTimestamp) {
+                    // A late sample changes an interval that was already charged
+                    needsRebuild = true;
+                    return;
+                }
+                if (timestamp == lastTimestamp) {
+                    // The same sample stored twice (a resent chunk)
+                    return;
+                }
+                energyWh += lastPower * ((timestamp - lastTimestamp) / MILLIS_PER_HOUR);
+            }
+            lastTimestamp = timestamp;
+            lastPower = power;
+            sampleCount++;
+            dirty = true;
+        }
+
+        private synchronized double energyWh() {
+            return energyWh;
+        }
+
+        private synchronized boolean needsRebuild() {
+            return needsRebuild;
+        }
+
+        private synchronized void markForRebuild() {
+            needsRebuild = true;
+        }
+
+        private synchronized void restore(EnergyAccumulator stored) {
+            energyWh = stored.getEnergyWh();
+            sampleCount = stored.getSampleCount();
+            if (stored.getLastTimestamp() != null && stored.getLastPower() != null) {
+                lastTimestamp = stored.getLastTimestamp().toEpochMilli();
+                lastPower = stored.getLastPower();
+            }
+        }
+
+        private synchronized boolean beginRebuild() {
+            if (parked != null) {
+                return false;
+            }
+            parked = new SampleSeries();
+            needsRebuild = false;
+            return true;
+        }
+
+        private synchronized void abortRebuild() {
+            parked = null;
+            needsRebuild = true;
+        }
+
+        // A parked sample may or may not be in what the rebuild read, depending on whether it was
+        // stored before the read reached it; read is that series, sorted. The ones it is missing
+        // are folded in, which marks the total for another rebuild if one is late.
+        private synchronized void finishRebuild(Accumulator rebuilt, SampleSeries read) {
+            energyWh = rebuilt.energyWh;
+            lastTimestamp = rebuilt.lastTimestamp;
+            lastPower = rebuilt.lastPower;
+            sampleCount = rebuilt.sampleCount;
+            SampleSeries late = parked;
+            parked = null;
+            late.sortByTimestamp();
+            for (int i = 0; i < late.size(); i++) {
+                if (!read.containsTimestamp(late.timestampAt(i))) {
+                    fold(late.timestampAt(i), late.powerAt(i));
+                }
+            }
+            dirty = true;
+        }
+
+        private synchronized EnergyAccumulator takeSnapshotIfDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            EnergyAccumulator snapshot = new EnergyAccumulator();
+            snapshot.setEcuId(ecuId);
+            snapshot.setEventId(eventId);
+            snapshot.setEnergyWh(energyWh);
+            snapshot.setSampleCount(sampleCount);
+            if (sampleCount > 0) {
+                snapshot.setLastTimestamp(Instant.ofEpochMilli(lastTimestamp));
+                snapshot.setLastPower(lastPower);
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.Event;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory interval index of event windows per ECU, built from Event.ecuIds and the event's
+// start/end time. Used to tag samples with their eventId as they are written and to resolve
+// event-scoped reads without loading the event. Kept current from Mongo save/delete events on
+// Event documents, plus a periodic full rebuild for changes made behind the mapping layer
+// (Atlas pulls, manual edits).
+@Service
+public class EventWindowIndex extends AbstractMongoEventListener<Event> {
+    private static final Window[] NONE = new Window[0];
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Event> events = new ConcurrentHashMap<>();
+
+    // ecuId -> windows sorted by start; replaced wholesale so readers never need a lock
+    private volatile Map<String, Window[]> windowsByEcu = Map.of();
+
+    public EventWindowIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Bounds are exclusive on both ends, matching the event-scoped sample reads
+    public static final class Window {
+        private final String eventId;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Window(String eventId, long startMillis, long endMillis) {
+            this.eventId = eventId;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        public String getEventId() {
+            return eventId;
+        }
+
+        public Instant getStart() {
+            return Instant.ofEpochMilli(startMillis);
+        }
+
+        public Instant getEnd() {
+            return Instant.ofEpochMilli(endMillis);
+        }
+
+        private boolean contains(long timestamp) {
+            return timestamp > startMillis && timestamp < endMillis;
+        }
+    }
+
+    // The event the ECU was racing in at timestamp, or null. When windows overlap the one that
+    // started last wins.
+    public String eventAt(String ecuId, long timestamp) {
+        Window[] windows = windowsByEcu.getOrDefault(ecuId, NONE);
+        int low = 0;
+        int high = windows.length - 1;
+        // Last window starting before timestamp
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (windows[mid].startMillis < timestamp) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        for (int i = candidate; i >= 0; i--) {
+            if (windows[i].contains(timestamp)) {
+                return windows[i].eventId;
+            }
+        }
+        return null;
+    }
+
+    // The event's window if the ECU is registered to it, otherwise null
+    public Window find(String ecuId, String eventId) {
+        for (Window window : windowsByEcu.getOrDefault(ecuId, NONE)) {
+            if (window.eventId.equals(eventId)) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${telemetry.events.refresh-ms:60000}", initialDelayString = "${telemetry.events.refresh-ms:60000}")
+    public void rebuild() {
+        Query query = new Query();
+        query.fields().include("_id", "ecuIds", "startTime", "endTime");
+        Map<String, Event> loaded = new HashMap<>();
+        for (Event event : mongoTemplate.find(query, Event.class)) {
+            loaded.put(event.getId(), event);
+        }
+        events.keySet().retainAll(loaded.keySet());
+        events.putAll(loaded);
+        publish();
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Event> saved) {
+        Event event = saved.getSource();
+        if (event.getId() != null) {
+            events.put(event.getId(), event);
+            publish();
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Event> deleted) {
+        Document filter = deleted.getSource();
+        Object id = filter == null ? null : filter.get("_id");
+        if (id != null) {
+            events.remove(id.toString());
+        } else {
+            // A delete by some other filter; we cannot tell which events went
+            rebuild();
+            return;
+        }
+        publish();
+    }
+
+    private synchronized void publish() {
+        Map<String, List<Window>> byEcu = new HashMap<>();
+        for (Event event : events.values()) {
+            if (event.getEcuIds() == null || event.getStartTime() == null || event.getEndTime() == null) {
+                continue;
+            }
+            Window window = new Window(event.getId(), event.getStartTime().toEpochMilli(), event.getEndTime().toEpochMilli());
+            for (String ecuId : event.getEcuIds()) {
+                byEcu.computeIfAbsent(ecuId, id -> new ArrayList<>()).add(window);
+            }
+        }
+        Map<String, Window[]> snapshot = new HashMap<>();
+        for (Map.Entry<String, List<Window>> entry : byEcu.entrySet()) {
+            Window[] windows = entry.getValue().toArray(NONE);
+            Arrays.sort(windows, Comparator.comparingLong(w -> w.startMillis));
+            snapshot.put(entry.getKey(), windows);
+        }
+        windowsByEcu = snapshot;
+    }
+}
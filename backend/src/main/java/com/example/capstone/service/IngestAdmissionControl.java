@@ -0,0 +1,202 @@
+package com.example.capstone.service;
+
+import com.example.capstone.dto.AdmissionStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+// Admission control in front of chunk ingest, so one ECU resending its whole buffer in a loop
+// cannot starve the rest of the field. A chunk is admitted only if:
+//   1. the ECU's token bucket has a token (telemetry.admission.chunks-per-second, burst),
+//   2. the ECU has fewer chunks in flight than its weighted share of the global cap, where the
+//      share is split across ECUs seen in the last few seconds (telemetry.admission.weights), and
+//   3. the global cap on concurrently ingested chunks (telemetry.admission.max-concurrent) has room.
+// Every admitted chunk must be released once it has been handled. Callers only pass serials of
+// registered ECUs, and ECUs idle for telemetry.admission.idle-evict-ms are forgotten, so the state
+// kept here stays proportional to the active fleet.
+@Service
+public class IngestAdmissionControl {
+    public enum Outcome { ADMITTED, RATE_LIMITED, FAIR_SHARE, OVERLOADED }
+
+    // An ECU counts towards the fair-share split for this long after its last chunk
+    private static final long ACTIVE_WINDOW_MILLIS = 5000;
+    // Retry hint when the limit is concurrency rather than rate
+    private static final long BUSY_RETRY_MILLIS = 200;
+
+    private final Map<String, SerialState> serials = new ConcurrentHashMap<>();
+    // Total weight of the ECUs seen within ACTIVE_WINDOW_MILLIS: added to when an ECU becomes
+    // active, recomputed on every sweep so ECUs that fall idle drop out
+    private final DoubleAdder activeWeight = new DoubleAdder();
+    private final Semaphore globalPermits;
+    private final int maxConcurrent;
+
+    @Value("${telemetry.admission.chunks-per-second:20}")
+    private double chunksPerSecond;
+
+    @Value("${telemetry.admission.burst:40}")
+    private double burst;
+
+    @Value("#{${telemetry.admission.weights:{:}}}")
+    private Map<String, Double> weights = Collections.emptyMap();
+
+    @Value("${telemetry.admission.idle-evict-ms:600000}")
+    private long idleEvictMillis;
+
+    public IngestAdmissionControl(@Value("${telemetry.admission.max-concurrent:16}") int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+        this.globalPermits = new Semaphore(maxConcurrent);
+    }
+
+    public Outcome tryAdmit(String serialNumber) {
+        long now = System.currentTimeMillis();
+        // Stamped inside compute so the sweep cannot evict the state between lookup and use
+        SerialState state = serials.compute(serialNumber, (serial, existing) -> {
+            SerialState current = existing != null ? existing : new SerialState(serial);
+            current.lastSeenMillis = now;
+            return current;
+        });
+        if (state.active.compareAndSet(false, true)) {
+            activeWeight.add(weightOf(serialNumber));
+        }
+
+        if (!state.tryTakeToken(System.nanoTime())) {
+            state.rateLimited.incrementAndGet();
+            return Outcome.RATE_LIMITED;
+        }
+        if (!state.tryEnter(fairShare(state))) {
+            state.refundToken();
+            state.fairShareRejected.incrementAndGet();
+            return Outcome.FAIR_SHARE;
+        }
+        if (!globalPermits.tryAcquire()) {
+            state.inFlight.decrementAndGet();
+            state.refundToken();
+            state.overloadRejected.incrementAndGet();
+            return Outcome.OVERLOADED;
+        }
+        state.admitted.incrementAndGet();
+        return Outcome.ADMITTED;
+    }
+
+    public void release(String serialNumber) {
+        SerialState state = serials.get(serialNumber);
+        if (state != null) {
+            state.inFlight.decrementAndGet();
+            globalPermits.release();
+        }
+    }
+
+    // How long a rejected device should wait before trying again
+    public long retryAfterMillis(String serialNumber, Outcome outcome) {
+        if (outcome == Outcome.RATE_LIMITED) {
+            SerialState state = serials.get(serialNumber);
+            return state == null ? BUSY_RETRY_MILLIS : state.millisUntilToken();
+        }
+        return BUSY_RETRY_MILLIS;
+    }
+
+    public List<AdmissionStatsDTO> getStats() {
+        List<AdmissionStatsDTO> stats = new ArrayList<>();
+        for (SerialState state : serials.values()) {
+            stats.add(new AdmissionStatsDTO(state.serialNumber, weightOf(state.serialNumber), state.inFlight.get(),
+                    state.admitted.get(), state.rateLimited.get(), state.fairShareRejected.get(),
+                    state.overloadRejected.get()));
+        }
+        return stats;
+    }
+
+    // Retires ECUs from the active weight once they fall outside the window and drops their state
+    // once they have been idle for idleEvictMillis with nothing in flight
+    @Scheduled(fixedDelayString = "${telemetry.admission.sweep-ms:1000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        double weight = 0;
+        for (SerialState state : serials.values()) {
+            long idle = now - state.lastSeenMillis;
+            if (idle > ACTIVE_WINDOW_MILLIS) {
+                state.active.set(false);
+            } else if (state.active.get()) {
+                weight += weightOf(state.serialNumber);
+            }
+            if (idle > idleEvictMillis && state.inFlight.get() == 0) {
+                serials.computeIfPresent(state.serialNumber, (serial, current) ->
+                        current == state && now - current.lastSeenMillis > idleEvictMillis && current.inFlight.get() == 0
+                                ? null : current);
+            }
+        }
+        // An ECU becoming active between the loop and here is counted again on the next sweep
+        activeWeight.reset();
+        activeWeight.add(weight);
+    }
+
+    // This ECU's weighted slice of the global cap, never less than one chunk
+    private int fairShare(SerialState state) {
+        double weight = weightOf(state.serialNumber);
+        double share = maxConcurrent * weight / Math.max(activeWeight.sum(), weight);
+        return Math.max(1, (int) share);
+    }
+
+    private double weightOf(String serialNumber) {
+        return weights.getOrDefault(serialNumber, 1.0);
+    }
+
+    private final class SerialState {
+        private final String serialNumber;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong fairShareRejected = new AtomicLong();
+        private final AtomicLong overloadRejected = new AtomicLong();
+        private volatile long lastSeenMillis;
+        // Whether this ECU's weight is in activeWeight
+        private final AtomicBoolean active = new AtomicBoolean();
+
+        private double tokens = burst;
+        private long lastRefillNanos = System.nanoTime();
+
+        private SerialState(String serialNumber) {
+            this.serialNumber = serialNumber;
+        }
+
+        private synchronized boolean tryTakeToken(long nowNanos) {
+            tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) / 1e9 * chunksPerSecond);
+            lastRefillNanos = nowNanos;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        private synchronized void refundToken() {
+            tokens = Math.min(burst, tokens + 1);
+        }
+
+        private synchronized long millisUntilToken() {
+            return Math.max(1, (long) Math.ceil((1 - tokens) / chunksPerSecond * 1000));
+        }
+
+        private boolean tryEnter(int limit) {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.capstone.service;
+
+import com.example.capstone.dto.IngestAdviceDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Tells devices how big their next chunk should be and how long to wait before sending it,
+// based on how full the ingest stage is and how long database writes are currently taking.
+// An idle server asks for large chunks back to back; as the backlog grows or writes slow
+// down, chunks shrink towards the minimum and the pacing delay grows towards the maximum.
+@Service
+public class IngestFlowControl {
+    // Below this fill level the backlog does not slow devices down at all
+    private static final double BACKLOG_FREE_FRACTION = 0.25;
+
+    private final TelemetryIngestStage ingestStage;
+    private final ECUSampleStore ecuSampleStore;
+
+    @Value("${telemetry.flow.min-chunk-samples:25}")
+    private int minChunkSamples;
+
+    @Value("${telemetry.flow.max-chunk-samples:200}")
+    private int maxChunkSamples;
+
+    @Value("${telemetry.flow.target-write-ms:50}")
+    private double targetWriteMillis;
+
+    @Value("${telemetry.flow.max-pacing-ms:2000}")
+    private long maxPacingMillis;
+
+    public IngestFlowControl(TelemetryIngestStage ingestStage, ECUSampleStore ecuSampleStore) {
+        this.ingestStage = ingestStage;
+        this.ecuSampleStore = ecuSampleStore;
+    }
+
+    public IngestAdviceDTO advise() {
+        double fill = Math.min(1.0, (double) ingestStage.getBacklog() / Math.max(1, ingestStage.getCapacity()));
+        double writeMillis = ecuSampleStore.getWriteMillisEwma();
+
+        // 1.0 when writes are at or under target, falling off as they get slower
+        double latencyHeadroom = writeMillis <= targetWriteMillis ? 1.0 : targetWriteMillis / writeMillis;
+        double backlogHeadroom = (1 - fill) * (1 - fill);
+        int chunkSamples = (int) Math.round(maxChunkSamples * Math.min(latencyHeadroom, backlogHeadroom));
+        chunkSamples = Math.max(minChunkSamples, Math.min(maxChunkSamples, chunkSamples));
+
+        double pressure = Math.max(0, (fill - BACKLOG_FREE_FRACTION) / (1 - BACKLOG_FREE_FRACTION));
+        long pacingMillis = Math.round(maxPacingMillis * pressure);
+        if (writeMillis > targetWriteMillis) {
+            // Give the database at least the time it is currently taking per write
+            pacingMillis = Math.max(pacingMillis, Math.round(writeMillis - targetWriteMillis));
+        }
+        return new IngestAdviceDTO(chunkSamples, Math.min(maxPacingMillis, pacingMillis));
+    }
+
+    // What a device that was just turned away should do next
+    public IngestAdviceDTO adviseRejected() {
+        return new IngestAdviceDTO(minChunkSamples, maxPacingMillis);
+    }
+}
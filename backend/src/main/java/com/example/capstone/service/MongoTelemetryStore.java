@@ -0,0 +1,436 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.ECUSample;
+import com.example.capstone.model.ECUSampleBucket;
+import com.example.capstone.model.SampleRun;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.util.GorillaCodec;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.bson.conversions.Bson;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Samples in Mongo, in either storage encoding (telemetry.storage.encoding):
+//   raw        - one time-series document per sample in ecu_samples
+//   compressed - one ecu_sample_buckets document per ECU, event and telemetry.storage.bucket-seconds
+//                slot, GorillaCodec columns. Writes extend the ECU's newest bucket while its slot is
+//                open instead of cutting a document per batch.
+// Reads always consult both, so switching encoding never hides existing data.
+public class MongoTelemetryStore implements TelemetryStore {
+    private final MongoTemplate mongoTemplate;
+    private final EventWindowIndex eventWindows;
+    private final boolean compressed;
+    private final long bucketMillis;
+    // Newest bucketed sample per ECU; anything at or before it takes the late-merge path
+    private final Map<String, Long> highWater = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> bucketLocks = new ConcurrentHashMap<>();
+    // Newest bucket per ECU with its samples decoded, so appends to it skip a read; guarded by the
+    // ECU's bucket lock and dropped whenever buckets are rewritten
+    private final Map<String, OpenBucket> openBuckets = new ConcurrentHashMap<>();
+    // Longest span of any stored bucket, so range reads can bound startTime from below as well;
+    // -1 until the first range read
+    private volatile long maxBucketSpanMillis = -1;
+
+    public MongoTelemetryStore(MongoTemplate mongoTemplate, EventWindowIndex eventWindows, String encoding, long bucketSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventWindows = eventWindows;
+        this.compressed = "compressed".equals(encoding);
+        this.bucketMillis = bucketSeconds * 1000;
+    }
+
+    @Override
+    public void write(List<SampleRun> runs) {
+        if (compressed) {
+            insertBuckets(runs);
+        } else {
+            insertSamples(runs);
+        }
+    }
+
+    // The time-series collection orders late samples by itself, so raw writes never need a merge
+    private void insertSamples(List<SampleRun> runs) {
+        List<Document> documents = new ArrayList<>();
+        for (SampleRun run : runs) {
+            SampleSeries samples = run.getSamples();
+            for (int i = run.getFrom(); i < run.getTo(); i++) {
+                Document document = new Document("ecuId", run.getEcuId())
+                        .append("timestamp", new Date(samples.timestampAt(i)))
+                        .append("voltage", samples.voltageAt(i))
+                        .append("current", samples.currentAt(i))
+                        .append("power", samples.powerAt(i));
+                if (run.getEventId() != null) {
+                    document.append("eventId", run.getEventId());
+                }
+                documents.add(document);
+            }
+        }
+        if (!documents.isEmpty()) {
+            samplesCollection().insertMany(documents, new InsertManyOptions().ordered(false));
+        }
+    }
+
+    // Keeps each ECU's buckets disjoint in time: samples newer than everything stored extend the
+    // open bucket or are cut into new buckets, all written as one batch, while late samples are merged with the buckets they
+    // overlap. ECU locks are taken in id order so concurrent imports cannot deadlock.
+    private void insertBuckets(List<SampleRun> runs) {
+        Map<String, List<SampleRun>> byEcu = new LinkedHashMap<>();
+        for (SampleRun run : runs) {
+            byEcu.computeIfAbsent(run.getEcuId(), id -> new ArrayList<>()).add(run);
+        }
+        List<String> ecuIds = new ArrayList<>(byEcu.keySet());
+        Collections.sort(ecuIds);
+        List<ReentrantLock> held = new ArrayList<>(ecuIds.size());
+        try {
+            for (String ecuId : ecuIds) {
+                ReentrantLock lock = bucketLocks.computeIfAbsent(ecuId, id -> new ReentrantLock());
+                lock.lock();
+                held.add(lock);
+            }
+            List<ECUSampleBucket> appended = new ArrayList<>();
+            Set<OpenBucket> extended = new LinkedHashSet<>();
+            for (String ecuId : ecuIds) {
+                List<SampleRun> ecuRuns = byEcu.get(ecuId);
+                SampleSeries samples = ecuRuns.get(0).getSamples();
+                int from = ecuRuns.get(0).getFrom();
+                long stored = highWater.computeIfAbsent(ecuId, this::loadHighWater);
+                int onTime = from;
+                int to = ecuRuns.get(ecuRuns.size() - 1).getTo();
+                while (onTime < to && samples.timestampAt(onTime) <= stored) {
+                    onTime++;
+                }
+                if (onTime > from) {
+                    mergeLate(ecuId, samples, from, onTime);
+                }
+                for (SampleRun run : ecuRuns) {
+                    int start = extendOpenBucket(ecuId, run.getEventId(), samples,
+                            Math.max(run.getFrom(), onTime), run.getTo(), extended);
+                    int cut = appended.size();
+                    cutBuckets(ecuId, run.getEventId(), samples, start, run.getTo(), appended);
+                    if (appended.size() > cut) {
+                        // The last new bucket is the one later writes extend; it gets its id now
+                        // so they can address it once it is inserted
+                        ECUSampleBucket newest = appended.get(appended.size() - 1);
+                        newest.setId(new ObjectId().toHexString());
+                        OpenBucket open = new OpenBucket(newest, GorillaCodec.decode(newest.getData()));
+                        open.pendingInsert = newest;
+                        openBuckets.put(ecuId, open);
+                    }
+                }
+            }
+            writeBuckets(appended, extended);
+            for (String ecuId : ecuIds) {
+                OpenBucket open = openBuckets.get(ecuId);
+                if (open != null) {
+                    open.pendingInsert = null;
+                }
+            }
+            for (String ecuId : ecuIds) {
+                List<SampleRun> ecuRuns = byEcu.get(ecuId);
+                SampleRun last = ecuRuns.get(ecuRuns.size() - 1);
+                if (last.getTo() > last.getFrom()) {
+                    highWater.merge(ecuId, last.getSamples().timestampAt(last.getTo() - 1), Math::max);
+                }
+            }
+        } catch (RuntimeException e) {
+            // What reached Mongo is unknown, so the next write reloads both from the stored buckets
+            for (String ecuId : ecuIds) {
+                openBuckets.remove(ecuId);
+                highWater.remove(ecuId);
+            }
+            throw e;
+        } finally {
+            for (ReentrantLock lock : held) {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Appends the leading samples of [from, to) that fall in the ECU's open bucket (same slot and
+    // event) to it, returning where the remaining samples start
+    private int extendOpenBucket(String ecuId, String eventId, SampleSeries samples, int from, int to,
+                                 Set<OpenBucket> extended) {
+        if (from >= to) {
+            return from;
+        }
+        OpenBucket open = openBuckets.computeIfAbsent(ecuId, this::loadOpenBucket);
+        if (open == null || !Objects.equals(open.eventId, eventId)) {
+            return from;
+        }
+        long slotEnd = (Math.floorDiv(open.samples.timestampAt(0), bucketMillis) + 1) * bucketMillis;
+        int end = from;
+        while (end < to && samples.timestampAt(end) < slotEnd) {
+            end++;
+        }
+        if (end > from) {
+            open.samples.addRange(samples, from, end);
+            extended.add(open);
+        }
+        return end;
+    }
+
+    private OpenBucket loadOpenBucket(String ecuId) {
+        Query latest = Query.query(Criteria.where("ecuId").is(ecuId))
+                .with(Sort.by(Sort.Direction.DESC, "startTime"))
+                .limit(1);
+        ECUSampleBucket bucket = mongoTemplate.findOne(latest, ECUSampleBucket.class);
+        return bucket == null ? null : new OpenBucket(bucket, GorillaCodec.decode(bucket.getData()));
+    }
+
+    // New buckets and rewrites of extended open buckets go out as one bulk write
+    private void writeBuckets(List<ECUSampleBucket> appended, Iterable<OpenBucket> extended) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ECUSampleBucket.class);
+        boolean any = false;
+        for (OpenBucket open : extended) {
+            byte[] data = GorillaCodec.encode(open.samples);
+            Instant endTime = Instant.ofEpochMilli(open.samples.timestampAt(open.samples.size() - 1));
+            if (open.pendingInsert != null) {
+                // Created earlier in this same write and not inserted yet
+                open.pendingInsert.setData(data);
+                open.pendingInsert.setEndTime(endTime);
+                open.pendingInsert.setCount(open.samples.size());
+                continue;
+            }
+            bulk.updateOne(Query.query(Criteria.where("id").is(open.id)), new Update()
+                    .set("data", data)
+                    .set("endTime", endTime)
+                    .set("count", open.samples.size()));
+            any = true;
+        }
+        if (!appended.isEmpty()) {
+            bulk.insert(appended);
+            any = true;
+        }
+        if (any) {
+            bulk.execute();
+        }
+    }
+
+    // Decodes the stored buckets overlapping samples [from, to), merges the late samples in and
+    // writes the result back as fresh buckets. The replacements are inserted before the old buckets
+    // are removed, so a failure in between leaves duplicates rather than losing samples.
+    private void mergeLate(String ecuId, SampleSeries samples, int from, int to) {
+        openBuckets.remove(ecuId);
+        Query overlapping = Query.query(Criteria.where("ecuId").is(ecuId)
+                .and("startTime").lte(Instant.ofEpochMilli(samples.timestampAt(to - 1)))
+                .and("endTime").gte(Instant.ofEpochMilli(samples.timestampAt(from))));
+        List<ECUSampleBucket> replaced = mongoTemplate.find(overlapping, ECUSampleBucket.class);
+        SampleSeries merged = new SampleSeries();
+        for (ECUSampleBucket bucket : replaced) {
+            merged.addAll(GorillaCodec.decode(bucket.getData()));
+        }
+        merged.addRange(samples, from, to);
+        merged.sortByTimestamp();
+
+        List<ECUSampleBucket> replacements = new ArrayList<>();
+        int start = 0;
+        String eventId = eventWindows.eventAt(ecuId, merged.timestampAt(0));
+        for (int i = 1; i <= merged.size(); i++) {
+            String nextEventId = i == merged.size() ? null : eventWindows.eventAt(ecuId, merged.timestampAt(i));
+            if (i == merged.size() || !Objects.equals(nextEventId, eventId)) {
+                cutBuckets(ecuId, eventId, merged, start, i, replacements);
+                start = i;
+                eventId = nextEventId;
+            }
+        }
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ECUSampleBucket.class)
+                .insert(replacements)
+                .execute();
+        if (!replaced.isEmpty()) {
+            List<String> ids = new ArrayList<>(replaced.size());
+            for (ECUSampleBucket bucket : replaced) {
+                ids.add(bucket.getId());
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("id").in(ids)), ECUSampleBucket.class);
+        }
+    }
+
+    // Timestamp of the newest bucketed sample, read once per ECU and then kept up to date by writes
+    private long loadHighWater(String ecuId) {
+        Query latest = Query.query(Criteria.where("ecuId").is(ecuId))
+                .with(Sort.by(Sort.Direction.DESC, "startTime"))
+                .limit(1);
+        ECUSampleBucket bucket = mongoTemplate.findOne(latest, ECUSampleBucket.class);
+        return bucket == null ? Long.MIN_VALUE : bucket.getEndTime().toEpochMilli();
+    }
+
+    // Cuts samples [from, to), all in one event, at aligned bucket boundaries
+    private void cutBuckets(String ecuId, String eventId, SampleSeries samples, int from, int to, List<ECUSampleBucket> buckets) {
+        int start = from;
+        for (int i = from + 1; i <= to; i++) {
+            if (i == to || Math.floorDiv(samples.timestampAt(i), bucketMillis)
+                    != Math.floorDiv(samples.timestampAt(start), bucketMillis)) {
+                buckets.add(encodeBucket(ecuId, eventId, samples, start, i));
+                start = i;
+            }
+        }
+    }
+
+    private ECUSampleBucket encodeBucket(String ecuId, String eventId, SampleSeries samples, int from, int to) {
+        SampleSeries series = new SampleSeries(to - from);
+        series.addRange(samples, from, to);
+        ECUSampleBucket bucket = new ECUSampleBucket();
+        bucket.setEcuId(ecuId);
+        bucket.setEventId(eventId);
+        bucket.setStartTime(Instant.ofEpochMilli(series.timestampAt(0)));
+        bucket.setEndTime(Instant.ofEpochMilli(series.timestampAt(series.size() - 1)));
+        bucket.setCount(series.size());
+        bucket.setData(GorillaCodec.encode(series));
+        return bucket;
+    }
+
+    // Raw deletes filter on timestamp, which time-series collections only accept from MongoDB 7.
+    // Buckets straddling a bound are rewritten with the samples outside the range.
+    @Override
+    public void deleteRange(String ecuId, Instant from, Instant to) {
+        samplesCollection().deleteMany(Filters.and(Filters.eq("ecuId", ecuId),
+                Filters.gt("timestamp", Date.from(from)),
+                Filters.lt("timestamp", Date.from(to))));
+        ReentrantLock lock = bucketLocks.computeIfAbsent(ecuId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            openBuckets.remove(ecuId);
+            Query overlapping = Query.query(Criteria.where("ecuId").is(ecuId)
+                    .and("startTime").lt(to)
+                    .and("endTime").gt(from));
+            List<ECUSampleBucket> replaced = mongoTemplate.find(overlapping, ECUSampleBucket.class);
+            if (replaced.isEmpty()) {
+                return;
+            }
+            List<ECUSampleBucket> remainders = new ArrayList<>();
+            List<String> ids = new ArrayList<>(replaced.size());
+            for (ECUSampleBucket bucket : replaced) {
+                ids.add(bucket.getId());
+                SampleSeries decoded = GorillaCodec.decode(bucket.getData());
+                SampleSeries before = new SampleSeries();
+                SampleSeries after = new SampleSeries();
+                for (int i = 0; i < decoded.size(); i++) {
+                    long timestamp = decoded.timestampAt(i);
+                    if (timestamp <= from.toEpochMilli()) {
+                        before.addRange(decoded, i, i + 1);
+                    } else if (timestamp >= to.toEpochMilli()) {
+                        after.addRange(decoded, i, i + 1);
+                    }
+                }
+                if (!before.isEmpty()) {
+                    remainders.add(encodeBucket(ecuId, bucket.getEventId(), before, 0, before.size()));
+                }
+                if (!after.isEmpty()) {
+                    remainders.add(encodeBucket(ecuId, bucket.getEventId(), after, 0, after.size()));
+                }
+            }
+            if (!remainders.isEmpty()) {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ECUSampleBucket.class)
+                        .insert(remainders)
+                        .execute();
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("id").in(ids)), ECUSampleBucket.class);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SampleSeries findRange(String ecuId, Instant from, Instant to) {
+        SampleSeries series = new SampleSeries();
+        readSamples(Filters.and(Filters.eq("ecuId", ecuId),
+                Filters.gt("timestamp", Date.from(from)),
+                Filters.lt("timestamp", Date.from(to))), series);
+        // A bucket ending after from started at most one bucket span before it, so the index scan
+        // covers the window rather than every bucket the ECU has stored before it
+        Query overlapping = Query.query(Criteria.where("ecuId").is(ecuId)
+                .and("startTime").lt(to).gte(from.minusMillis(maxBucketSpanMillis()))
+                .and("endTime").gt(from));
+        readBuckets(overlapping, from.toEpochMilli(), to.toEpochMilli(), series);
+        series.sortByTimestamp();
+        return series;
+    }
+
+    @Override
+    public SampleSeries findAll(String ecuId) {
+        SampleSeries series = new SampleSeries();
+        readSamples(Filters.eq("ecuId", ecuId), series);
+        readBuckets(Query.query(Criteria.where("ecuId").is(ecuId)), Long.MIN_VALUE, Long.MAX_VALUE, series);
+        series.sortByTimestamp();
+        return series;
+    }
+
+    // Buckets written now never cross a bucketMillis boundary, but ones written under a longer
+    // telemetry.storage.bucket-seconds may, so the longest stored span is looked up once
+    private long maxBucketSpanMillis() {
+        long span = maxBucketSpanMillis;
+        if (span < 0) {
+            Document longest = mongoTemplate.getCollection(mongoTemplate.getCollectionName(ECUSampleBucket.class))
+                    .aggregate(List.of(Aggregates.group(null, Accumulators.max("span",
+                            new Document("$subtract", List.of("$endTime", "$startTime"))))))
+                    .first();
+            Number stored = longest == null ? null : longest.get("span", Number.class);
+            span = Math.max(bucketMillis, stored == null ? 0 : stored.longValue());
+            maxBucketSpanMillis = span;
+        }
+        return span;
+    }
+
+    // Streams raw time-series documents straight into the series, without mapping each one to an entity
+    private void readSamples(Bson filter, SampleSeries series) {
+        for (Document doc : samplesCollection().find(filter)
+                .projection(Projections.include("timestamp", "voltage", "current", "power"))
+                .sort(Sorts.ascending("timestamp"))) {
+            series.add(doc.getDate("timestamp").getTime(),
+                    doc.getDouble("voltage"), doc.getDouble("current"), doc.getDouble("power"));
+        }
+    }
+
+    // Decodes matching buckets into the series, keeping samples strictly inside (fromMillis, toMillis).
+    // Buckets never overlap, so reading them in start order yields samples in timestamp order and
+    // the caller's sort is only a check
+    private void readBuckets(Query query, long fromMillis, long toMillis, SampleSeries series) {
+        query.with(Sort.by(Sort.Direction.ASC, "startTime"));
+        for (ECUSampleBucket bucket : mongoTemplate.find(query, ECUSampleBucket.class)) {
+            SampleSeries decoded = GorillaCodec.decode(bucket.getData());
+            series.addRange(decoded, decoded.firstAfter(fromMillis), decoded.firstAtOrAfter(toMillis));
+        }
+    }
+
+    private MongoCollection<Document> samplesCollection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(ECUSample.class));
+    }
+
+    private static final class OpenBucket {
+        private final String id;
+        private final String eventId;
+        private final SampleSeries samples;
+        // Set while the bucket is only in the current write's insert list
+        private ECUSampleBucket pendingInsert;
+
+        private OpenBucket(ECUSampleBucket bucket, SampleSeries samples) {
+            this.id = bucket.getId();
+            this.eventId = bucket.getEventId();
+            this.samples = samples;
+        }
+    }
+}
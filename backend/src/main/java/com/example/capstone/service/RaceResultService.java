@@ -4,8 +4,6 @@ import com.example.capstone.model.*;
 import com.example.capstone.repository.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -17,21 +15,20 @@ public class RaceResultService {
     private final TeamRepository teamRepository;
     private final VehicleRepository vehicleRepository;
     private final CompetitionRepository competitionRepository;
-    
-    @Autowired
-    @Lazy
-    private ECUService ecuService;
+    private final EnergyAccumulatorService energyAccumulatorService;
 
     public RaceResultService(RaceResultRepository raceResultRepository, 
                            EventRepository eventRepository,
                            TeamRepository teamRepository, 
                            VehicleRepository vehicleRepository,
-                           CompetitionRepository competitionRepository) {
+                           CompetitionRepository competitionRepository,
+                           EnergyAccumulatorService energyAccumulatorService) {
         this.raceResultRepository = raceResultRepository;
         this.eventRepository = eventRepository;
         this.teamRepository = teamRepository;
         this.vehicleRepository = vehicleRepository;
         this.competitionRepository = competitionRepository;
+        this.energyAccumulatorService = energyAccumulatorService;
     }
 
     // Create race result when team registers for event
@@ -199,35 +196,22 @@ public class RaceResultService {
             .orElseThrow(() -> new IllegalArgumentException("Race result not found"));
     }
 
-    // Calculate energy consumed during an event
+    // Energy consumed during an event, kept current on the ingest path by EnergyAccumulatorService
     public Double calculateEnergyForEvent(String ecuId, String eventId) {
         try {
-            List<ECUStatus> statusList = ecuService.getECUStatusByEvent(ecuId, eventId);
-            if (statusList.isEmpty()) {
-                return 0.0;
-            }
-
-            double cumulativeEnergy = 0.0;
-            for (int i = 1; i < statusList.size(); i++) {
-                ECUStatus prev = statusList.get(i - 1);
-                ECUStatus curr = statusList.get(i);
-                
-                // Calculate time difference in hours
-                long prevTime = prev.getTimestamp().toEpochMilli();
-                long currTime = curr.getTimestamp().toEpochMilli();
-                double deltaTimeHours = (currTime - prevTime) / 3600000.0;
-                
-                // Energy = Power * Time
-                cumulativeEnergy += prev.getPower() * deltaTimeHours;
-            }
-            
-            return cumulativeEnergy;
+            return energyAccumulatorService.getEnergyWh(ecuId, eventId);
         } catch (Exception e) {
             System.err.println("Error calculating energy: " + e.getMessage());
             return 0.0;
         }
     }
 
+    // Recomputes the event's energy totals from the stored samples, then updates its results
+    public void rebuildEnergyForEvent(String eventId) {
+        energyAccumulatorService.rebuildEvent(eventId);
+        updateEnergyForEvent(eventId);
+    }
+
     // Update energy for all results in an event
     @Transactional
     public void updateEnergyForEvent(String eventId) {
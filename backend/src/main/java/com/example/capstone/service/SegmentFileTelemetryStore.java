@@ -0,0 +1,353 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleRun;
+import com.example.capstone.model.SampleSeries;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+// Samples in per-ECU append-only segment files on local disk, for deployments where keeping every
+// sample as a Mongo document is too costly. Mongo keeps ECUs, events and aggregates only.
+//
+//   {dir}/{ecuId}/{segment id, 20 digits}.seg
+//   record: int64 timestamp millis, float64 voltage, current, power (little-endian, 32 bytes)
+//
+// Records within a segment are in timestamp order. A write that starts before the newest stored
+// sample opens a new segment, so late chunks cost an extra segment rather than a rewrite. Each
+// segment keeps a sparse in-memory index (every INDEX_STRIDE-th timestamp) and is read through a
+// read-only mapping: range reads decode straight from the page cache into the result arrays.
+//
+// A write returns once its records are forced to disk. On startup a torn record at the end of a
+// segment (crash mid-append) is cut off.
+public class SegmentFileTelemetryStore implements TelemetryStore {
+
+    private static final int RECORD_SIZE = 32;
+    private static final int INDEX_STRIDE = 256;
+    private static final String SUFFIX = ".seg";
+    private static final Pattern SAFE_ECU_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Map<String, EcuSegments> ecus = new ConcurrentHashMap<>();
+
+    public SegmentFileTelemetryStore(Path dir, long segmentBytes) throws IOException {
+        // A segment is read through a single mapping, which Java limits to 2 GB
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("telemetry.storage.segments.segment-bytes must be between 1 and " + Integer.MAX_VALUE / 2);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+    }
+
+    @Override
+    public void write(List<SampleRun> runs) {
+        Map<String, List<SampleRun>> byEcu = new LinkedHashMap<>();
+        for (SampleRun run : runs) {
+            byEcu.computeIfAbsent(run.getEcuId(), id -> new ArrayList<>()).add(run);
+        }
+        for (Map.Entry<String, List<SampleRun>> entry : byEcu.entrySet()) {
+            List<SampleRun> ecuRuns = entry.getValue();
+            SampleRun first = ecuRuns.get(0);
+            int to = ecuRuns.get(ecuRuns.size() - 1).getTo();
+            if (to > first.getFrom()) {
+                try {
+                    segments(entry.getKey()).append(first.getSamples(), first.getFrom(), to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not append samples for ECU " + entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public SampleSeries findRange(String ecuId, Instant from, Instant to) {
+        return read(ecuId, from.toEpochMilli(), to.toEpochMilli());
+    }
+
+    @Override
+    public SampleSeries findAll(String ecuId) {
+        return read(ecuId, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void deleteRange(String ecuId, Instant from, Instant to) {
+        try {
+            segments(ecuId).delete(from.toEpochMilli(), to.toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete samples for ECU " + ecuId, e);
+        }
+    }
+
+    // Samples strictly inside (fromMillis, toMillis)
+    private SampleSeries read(String ecuId, long fromMillis, long toMillis) {
+        SampleSeries series = new SampleSeries();
+        try {
+            for (Segment segment : segments(ecuId).segments) {
+                segment.read(fromMillis, toMillis, series);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read samples for ECU " + ecuId, e);
+        }
+        // Segments opened for late writes overlap earlier ones; otherwise this is only a check
+        series.sortByTimestamp();
+        return series;
+    }
+
+    private EcuSegments segments(String ecuId) {
+        if (!SAFE_ECU_ID.matcher(ecuId).matches()) {
+            throw new IllegalArgumentException("ECU id not usable as a segment directory: " + ecuId);
+        }
+        return ecus.computeIfAbsent(ecuId, id -> {
+            try {
+                return new EcuSegments(dir.resolve(id));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open segments for ECU " + id, e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        for (EcuSegments ecu : ecus.values()) {
+            ecu.close();
+        }
+        System.out.println("[INFO] Telemetry segment files closed");
+    }
+
+    private static ByteBuffer encode(SampleSeries samples, int from, int to) {
+        ByteBuffer records = ByteBuffer.allocate((to - from) * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = from; i < to; i++) {
+            records.putLong(samples.timestampAt(i))
+                    .putDouble(samples.voltageAt(i))
+                    .putDouble(samples.currentAt(i))
+                    .putDouble(samples.powerAt(i));
+        }
+        return records.flip();
+    }
+
+    private final class EcuSegments {
+        private final Path ecuDir;
+        // Copy-on-write, so readers iterate without locking
+        private final List<Segment> segments = new CopyOnWriteArrayList<>();
+        private FileChannel active;
+
+        private EcuSegments(Path ecuDir) throws IOException {
+            this.ecuDir = ecuDir;
+            Files.createDirectories(ecuDir);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(ecuDir, "*" + SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            files.sort(null);
+            for (Path file : files) {
+                segments.add(Segment.open(file));
+            }
+        }
+
+        // Called with samples [from, to) of one ECU, in timestamp order
+        private synchronized void append(SampleSeries samples, int from, int to) throws IOException {
+            Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last == null || last.byteSize() >= segmentBytes || samples.timestampAt(from) < last.lastTimestamp) {
+                last = roll(last);
+            } else if (active == null) {
+                // First write since startup continues the newest segment
+                active = FileChannel.open(last.file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            }
+            ByteBuffer records = encode(samples, from, to);
+            long position = last.byteSize();
+            while (records.hasRemaining()) {
+                position += active.write(records, position);
+            }
+            active.force(false);
+            last.appended(samples, from, to);
+        }
+
+        // Segments entirely inside the range are deleted; ones straddling a bound are copied without
+        // the range and moved over the original, so readers still holding the old mapping are unaffected
+        private synchronized void delete(long fromMillis, long toMillis) throws IOException {
+            for (int s = 0; s < segments.size(); s++) {
+                Segment segment = segments.get(s);
+                if (segment.count == 0 || segment.lastTimestamp <= fromMillis || segment.firstTimestamp >= toMillis) {
+                    continue;
+                }
+                boolean newest = s == segments.size() - 1;
+                if (newest && active != null) {
+                    active.close();
+                    active = null;
+                }
+                SampleSeries kept = new SampleSeries();
+                segment.read(Long.MIN_VALUE, fromMillis + 1, kept);
+                segment.read(toMillis - 1, Long.MAX_VALUE, kept);
+                if (kept.isEmpty() && !newest) {
+                    Files.delete(segment.file);
+                    segments.remove(s--);
+                    continue;
+                }
+                Path rewritten = segment.file.resolveSibling(segment.file.getFileName() + ".tmp");
+                try (FileChannel channel = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ByteBuffer records = encode(kept, 0, kept.size());
+                    while (records.hasRemaining()) {
+                        channel.write(records);
+                    }
+                    channel.force(false);
+                }
+                Files.move(rewritten, segment.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                segments.set(s, Segment.open(segment.file));
+            }
+        }
+
+        private Segment roll(Segment last) throws IOException {
+            if (active != null) {
+                active.close();
+            }
+            long id = last == null ? 0 : last.id + 1;
+            Path file = ecuDir.resolve(String.format("%020d", id) + SUFFIX);
+            active = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            Segment segment = Segment.open(file);
+            segments.add(segment);
+            return segment;
+        }
+
+        private synchronized void close() {
+            if (active != null) {
+                try {
+                    active.force(false);
+                    active.close();
+                } catch (IOException e) {
+                    System.err.println("[ERROR] Could not close telemetry segment in " + ecuDir + ": " + e.getMessage());
+                }
+                active = null;
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final long id;
+        // count is published last, so a reader that sees it also sees the index and timestamps
+        private volatile int count;
+        private volatile long[] sparseIndex = new long[0];
+        private volatile long firstTimestamp;
+        private volatile long lastTimestamp;
+        private MappedByteBuffer mapped;
+        private int mappedCount;
+
+        private Segment(Path file, long id) {
+            this.file = file;
+            this.id = id;
+        }
+
+        private static Segment open(Path file) throws IOException {
+            String name = file.getFileName().toString();
+            Segment segment = new Segment(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                if (size % RECORD_SIZE != 0) {
+                    System.err.println("[ERROR] Cutting torn record off telemetry segment " + file);
+                    size -= size % RECORD_SIZE;
+                    channel.truncate(size);
+                }
+                int records = (int) (size / RECORD_SIZE);
+                if (records > 0) {
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+                    long[] index = new long[(records + INDEX_STRIDE - 1) / INDEX_STRIDE];
+                    for (int i = 0; i < index.length; i++) {
+                        index[i] = buffer.getLong(i * INDEX_STRIDE * RECORD_SIZE);
+                    }
+                    segment.sparseIndex = index;
+                    segment.firstTimestamp = index[0];
+                    segment.lastTimestamp = buffer.getLong((records - 1) * RECORD_SIZE);
+                    segment.count = records;
+                }
+            }
+            return segment;
+        }
+
+        private long byteSize() {
+            return (long) count * RECORD_SIZE;
+        }
+
+        // Only the ECU's writer calls this, after the records are on disk
+        private void appended(SampleSeries samples, int from, int to) {
+            int start = count;
+            int end = start + (to - from);
+            long[] index = sparseIndex;
+            int indexSize = (end + INDEX_STRIDE - 1) / INDEX_STRIDE;
+            if (indexSize > index.length) {
+                index = Arrays.copyOf(index, indexSize);
+                for (int record = ((start + INDEX_STRIDE - 1) / INDEX_STRIDE) * INDEX_STRIDE; record < end; record += INDEX_STRIDE) {
+                    index[record / INDEX_STRIDE] = samples.timestampAt(from + record - start);
+                }
+                sparseIndex = index;
+            }
+            if (start == 0) {
+                firstTimestamp = samples.timestampAt(from);
+            }
+            lastTimestamp = samples.timestampAt(to - 1);
+            count = end;
+        }
+
+        private void read(long fromMillis, long toMillis, SampleSeries series) throws IOException {
+            int records = count;
+            if (records == 0 || lastTimestamp <= fromMillis || firstTimestamp >= toMillis) {
+                return;
+            }
+            ByteBuffer buffer = mapping(records);
+            // Last indexed record at or before fromMillis, then a short scan to the first one after it
+            long[] index = sparseIndex;
+            int low = 0;
+            int high = Math.min(index.length, (records + INDEX_STRIDE - 1) / INDEX_STRIDE) - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (index[mid] <= fromMillis) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            for (int i = low * INDEX_STRIDE; i < records; i++) {
+                int offset = i * RECORD_SIZE;
+                long timestamp = buffer.getLong(offset);
+                if (timestamp >= toMillis) {
+                    break;
+                }
+                if (timestamp > fromMillis) {
+                    series.add(timestamp, buffer.getDouble(offset + 8), buffer.getDouble(offset + 16), buffer.getDouble(offset + 24));
+                }
+            }
+        }
+
+        // The mapping is only widened when the segment has grown since the last read
+        private synchronized ByteBuffer mapping(int records) throws IOException {
+            if (mapped == null || mappedCount < records) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) records * RECORD_SIZE);
+                }
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                mappedCount = records;
+            }
+            return mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
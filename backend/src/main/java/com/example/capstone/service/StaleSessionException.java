@@ -0,0 +1,9 @@
+package com.example.capstone.service;
+
+// A chunk sent with a session token from before the ECU's latest register call; its timestamps
+// are relative to a recording origin the server no longer has. Reported to the device as 409.
+public class StaleSessionException extends IllegalArgumentException {
+    public StaleSessionException(String serialNumber) {
+        super("Session for ECU " + serialNumber + " has been replaced, register again");
+    }
+}
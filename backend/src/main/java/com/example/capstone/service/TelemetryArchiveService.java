@@ -0,0 +1,169 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.Event;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.TelemetryArchive;
+import com.example.capstone.util.GorillaCodec;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Cold tier for old telemetry: one GorillaCodec blob per (ECU, event), in GridFS or in files under
+// telemetry.retention.local-dir, plus the telemetry_archives catalog (cached per ECU).
+// ECUSampleStore reads through it, so archived events stay queryable like hot ones. Only samples
+// inside an event window are archived; samples recorded outside every event stay hot.
+@Service
+public class TelemetryArchiveService {
+    private final MongoTemplate mongoTemplate;
+    private final GridFsTemplate gridFsTemplate;
+    private final Map<String, List<TelemetryArchive>> catalog = new ConcurrentHashMap<>();
+
+    @Value("${telemetry.retention.storage:gridfs}")
+    private String storage;
+
+    @Value("${telemetry.retention.local-dir:telemetry-archive}")
+    private String localDir;
+
+    public TelemetryArchiveService(MongoTemplate mongoTemplate, GridFsTemplate gridFsTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsTemplate = gridFsTemplate;
+    }
+
+    public TelemetryArchive find(String ecuId, String eventId) {
+        for (TelemetryArchive archive : archives(ecuId)) {
+            if (archive.getEventId().equals(eventId)) {
+                return archive;
+            }
+        }
+        return null;
+    }
+
+    // Writes the blob first and the catalog entry second, so an entry always has its blob
+    public TelemetryArchive archive(String competitionId, Event event, String ecuId, SampleSeries samples) {
+        TelemetryArchive archive = new TelemetryArchive();
+        archive.setEcuId(ecuId);
+        archive.setEventId(event.getId());
+        archive.setCompetitionId(competitionId);
+        archive.setWindowStart(event.getStartTime());
+        archive.setWindowEnd(event.getEndTime());
+        archive.setSampleCount(samples.size());
+        archive.setStorage(TelemetryArchive.STORAGE_LOCAL.equals(storage) ? TelemetryArchive.STORAGE_LOCAL : TelemetryArchive.STORAGE_GRIDFS);
+        if (!samples.isEmpty()) {
+            archive.setLocation(writeBlob(archive, GorillaCodec.encode(samples)));
+        }
+        archive.setArchivedAt(Instant.now());
+        TelemetryArchive saved = mongoTemplate.insert(archive);
+        archives(ecuId).add(saved);
+        return saved;
+    }
+
+    public void markHotDeleted(TelemetryArchive archive) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(archive.getId())),
+                Update.update("hotDeleted", true), TelemetryArchive.class);
+        archive.setHotDeleted(true);
+    }
+
+    // Merges archived samples strictly inside (fromMillis, toMillis) into the hot ones. A hot sample
+    // is dropped only when an archive holds one at the same timestamp, i.e. it is the hot copy of an
+    // archived sample; anything that reached the hot store after the archive was cut is kept.
+    public SampleSeries readThrough(String ecuId, long fromMillis, long toMillis, SampleSeries hot) {
+        List<TelemetryArchive> overlapping = new ArrayList<>();
+        for (TelemetryArchive archive : archives(ecuId)) {
+            if (archive.getSampleCount() > 0 && archive.getWindowStart().toEpochMilli() < toMillis
+                    && archive.getWindowEnd().toEpochMilli() > fromMillis) {
+                overlapping.add(archive);
+            }
+        }
+        if (overlapping.isEmpty()) {
+            return hot;
+        }
+        SampleSeries merged = new SampleSeries(hot.size());
+        List<SampleSeries> archived = new ArrayList<>(overlapping.size());
+        for (TelemetryArchive archive : overlapping) {
+            // Archives are encoded from time-ordered reads
+            SampleSeries samples = GorillaCodec.decode(readBlob(archive));
+            archived.add(samples);
+            merged.addRange(samples, samples.firstAfter(fromMillis), samples.firstAtOrAfter(toMillis));
+        }
+        for (int i = 0; i < hot.size(); i++) {
+            if (!archivedAt(archived, hot.timestampAt(i))) {
+                merged.addRange(hot, i, i + 1);
+            }
+        }
+        merged.sortByTimestamp();
+        return merged;
+    }
+
+    private static boolean archivedAt(List<SampleSeries> archived, long timestamp) {
+        for (SampleSeries samples : archived) {
+            if (samples.containsTimestamp(timestamp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<TelemetryArchive> archives(String ecuId) {
+        return catalog.computeIfAbsent(ecuId, id -> {
+            List<TelemetryArchive> loaded = mongoTemplate.find(Query.query(Criteria.where("ecuId").is(id)), TelemetryArchive.class);
+            loaded.sort(Comparator.comparing(TelemetryArchive::getWindowStart));
+            return new CopyOnWriteArrayList<>(loaded);
+        });
+    }
+
+    private String writeBlob(TelemetryArchive archive, byte[] blob) {
+        String name = archive.getEcuId() + "-" + archive.getEventId() + ".gorilla";
+        if (TelemetryArchive.STORAGE_LOCAL.equals(archive.getStorage())) {
+            try {
+                Path dir = Files.createDirectories(Path.of(localDir));
+                Path partial = dir.resolve(name + ".tmp");
+                Files.write(partial, blob);
+                Files.move(partial, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return name;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write telemetry archive " + name, e);
+            }
+        }
+        ObjectId id = gridFsTemplate.store(new ByteArrayInputStream(blob), name, "application/octet-stream");
+        return id.toHexString();
+    }
+
+    private byte[] readBlob(TelemetryArchive archive) {
+        try {
+            if (TelemetryArchive.STORAGE_LOCAL.equals(archive.getStorage())) {
+                return Files.readAllBytes(Path.of(localDir).resolve(archive.getLocation()));
+            }
+            GridFSFile file = gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(new ObjectId(archive.getLocation()))));
+            if (file == null) {
+                throw new IllegalStateException("Telemetry archive blob " + archive.getLocation() + " is missing from GridFS");
+            }
+            try (InputStream in = gridFsTemplate.getResource(file).getInputStream()) {
+                return in.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read telemetry archive for ECU " + archive.getEcuId()
+                    + " in event " + archive.getEventId(), e);
+        }
+    }
+}
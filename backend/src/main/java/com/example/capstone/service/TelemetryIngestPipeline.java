@@ -0,0 +1,143 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Group-commit stage between the bulk endpoints and Mongo. Requests only enqueue their chunk;
+// a single writer thread drains whatever has queued up (from any number of ECUs) and writes
+// it as one batch, so a burst of reconnecting karts costs a handful of round trips.
+public class TelemetryIngestPipeline implements TelemetryIngestStage {
+
+    private static final long INITIAL_RETRY_BACKOFF_MILLIS = 100;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5000;
+    // How long close() keeps retrying a failing write before giving up on what is still queued
+    private static final long CLOSE_DRAIN_MILLIS = 30000;
+
+    private final BlockingQueue<SampleChunk> queue;
+    private final Consumer<List<SampleChunk>> writer;
+    private final long lingerMillis;
+    private final int maxBatchChunks;
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+    private volatile long drainDeadlineNanos;
+
+    public TelemetryIngestPipeline(Consumer<List<SampleChunk>> writer, int capacity, long lingerMillis, int maxBatchChunks) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = writer;
+        this.lingerMillis = lingerMillis;
+        this.maxBatchChunks = maxBatchChunks;
+        this.writerThread = new Thread(this::runWriter, "telemetry-ingest-writer");
+        this.writerThread.start();
+    }
+
+    // Never blocks the request thread: a full queue is reported straight back to the caller
+    @Override
+    public void submit(SampleChunk chunk) {
+        if (!running) {
+            throw new IllegalStateException("Telemetry ingest is shutting down");
+        }
+        if (!queue.offer(chunk)) {
+            throw new QueueFullException();
+        }
+    }
+
+    @Override
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    private void runWriter() {
+        List<SampleChunk> batch = new ArrayList<>(maxBatchChunks);
+        while (running || !queue.isEmpty()) {
+            try {
+                SampleChunk first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Give other ECUs a moment to join this batch before committing it
+                if (lingerMillis > 0 && running && queue.size() < maxBatchChunks) {
+                    Thread.sleep(lingerMillis);
+                }
+                queue.drainTo(batch, maxBatchChunks - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                drainDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_DRAIN_MILLIS);
+                running = false;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // These chunks were acknowledged and their seqs claimed, so a device retry would be ignored as a
+    // duplicate: keep retrying, like the WAL replayer, while the queue behind it fills up and turns
+    // devices away with 429. Only a shutdown that cannot drain in time gives up on them.
+    private void writeBatch(List<SampleChunk> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long backoff = INITIAL_RETRY_BACKOFF_MILLIS;
+        boolean interrupted = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    writer.accept(batch);
+                    return;
+                } catch (RuntimeException e) {
+                    if (!running && System.nanoTime() - drainDeadlineNanos > 0) {
+                        System.err.println("[ERROR] Dropping " + batch.size() + " chunks at shutdown after " + attempt
+                                + " failed writes: " + e.getMessage());
+                        return;
+                    }
+                    System.err.println("[ERROR] Telemetry batch write of " + batch.size() + " chunks failed (attempt "
+                            + attempt + "), retrying in " + backoff + " ms: " + e.getMessage());
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    // Treated as the start of a shutdown; the flag is restored once this batch is settled
+                    interrupted = true;
+                    if (running) {
+                        drainDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_DRAIN_MILLIS);
+                        running = false;
+                    }
+                }
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Stops accepting chunks and blocks until everything already acknowledged has been written
+    @Override
+    public void close() {
+        drainDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_DRAIN_MILLIS);
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<SampleChunk> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        writeBatch(remaining);
+        System.out.println("[INFO] Telemetry ingest pipeline flushed");
+    }
+}
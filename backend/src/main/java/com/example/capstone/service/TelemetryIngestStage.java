@@ -0,0 +1,27 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleChunk;
+
+// Where ECUService hands off an accepted chunk. submit() returning normally is the
+// acknowledgement sent to the device; the stage is responsible for getting the chunk into storage.
+public interface TelemetryIngestStage extends AutoCloseable {
+
+    // Must not block on the database; throws QueueFullException when the device should back off
+    void submit(SampleChunk chunk);
+
+    // Chunks acknowledged but not yet written to storage
+    int getBacklog();
+
+    // Backlog at which submit starts rejecting chunks
+    int getCapacity();
+
+    // Stops accepting chunks and flushes or persists everything already acknowledged
+    @Override
+    void close();
+
+    class QueueFullException extends RuntimeException {
+        public QueueFullException() {
+            super("Telemetry ingest queue is full");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.Competition;
+import com.example.capstone.model.Event;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.TelemetryArchive;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Moves the samples of competitions older than their retention age out of the hot store and into
+// the archive. A competition's age counts from the end of its last event (its date if it has
+// none); Competition.archiveAfterDays overrides telemetry.retention.archive-after-days, and a
+// negative value keeps the competition hot for good.
+@Service
+public class TelemetryRetentionService {
+    private final MongoTemplate mongoTemplate;
+    private final TelemetryStore telemetryStore;
+    private final TelemetryArchiveService archives;
+
+    @Value("${telemetry.retention.archive-after-days:180}")
+    private int defaultArchiveAfterDays;
+
+    public TelemetryRetentionService(MongoTemplate mongoTemplate, TelemetryStore telemetryStore, TelemetryArchiveService archives) {
+        this.mongoTemplate = mongoTemplate;
+        this.telemetryStore = telemetryStore;
+        this.archives = archives;
+    }
+
+    @Scheduled(initialDelayString = "${telemetry.retention.check-ms:3600000}", fixedDelayString = "${telemetry.retention.check-ms:3600000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        for (Competition competition : mongoTemplate.findAll(Competition.class)) {
+            try {
+                List<Event> events = events(competition.getId());
+                if (isDue(competition, events, now)) {
+                    archive(competition, events);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Could not archive telemetry of competition " + competition.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Archives a competition now, whatever its age; returns the number of (ECU, event) archives
+    public int archiveCompetition(String competitionId) {
+        Competition competition = mongoTemplate.findById(competitionId, Competition.class);
+        if (competition == null) {
+            throw new IllegalArgumentException("Competition not found");
+        }
+        return archive(competition, events(competitionId));
+    }
+
+    private List<Event> events(String competitionId) {
+        return mongoTemplate.find(Query.query(Criteria.where("competitionId").is(competitionId)), Event.class);
+    }
+
+    private boolean isDue(Competition competition, List<Event> events, Instant now) {
+        int days = competition.getArchiveAfterDays() != null ? competition.getArchiveAfterDays() : defaultArchiveAfterDays;
+        if (days < 0) {
+            return false;
+        }
+        Instant last = competition.getDate();
+        for (Event event : events) {
+            if (last == null || event.getEndTime().isAfter(last)) {
+                last = event.getEndTime();
+            }
+        }
+        return last != null && last.plus(Duration.ofDays(days)).isBefore(now);
+    }
+
+    // Safe to repeat: finished archives are skipped, and one whose hot copy could not be removed
+    // last time is retried
+    private int archive(Competition competition, List<Event> events) {
+        int archived = 0;
+        for (Event event : events) {
+            for (String ecuId : event.getEcuIds()) {
+                TelemetryArchive archive = archives.find(ecuId, event.getId());
+                if (archive == null) {
+                    SampleSeries samples = telemetryStore.findRange(ecuId, event.getStartTime(), event.getEndTime());
+                    archive = archives.archive(competition.getId(), event, ecuId, samples);
+                    archived++;
+                    System.out.println("[INFO] Archived " + samples.size() + " samples of ECU " + ecuId + " in event " + event.getId());
+                }
+                if (!archive.isHotDeleted()) {
+                    // Reads drop hot samples the archive also holds, so a failed delete only costs space
+                    try {
+                        telemetryStore.deleteRange(ecuId, archive.getWindowStart(), archive.getWindowEnd());
+                        archives.markHotDeleted(archive);
+                    } catch (RuntimeException e) {
+                        System.err.println("[ERROR] Archived samples of ECU " + ecuId + " in event " + event.getId()
+                                + " are still in the hot store: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.capstone.service;
+
+import com.example.capstone.dto.TelemetryRollupSeriesDTO;
+import com.example.capstone.model.ChannelRollup;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.TelemetryRollup;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-ECU rollups of the stored samples at 1 s, 10 s and 1 min, kept in telemetry_rollups so
+// overview charts read a bounded number of buckets instead of every sample. Stored runs are folded
+// into pending buckets in memory; every telemetry.rollups.flush-ms the pending buckets are upserted
+// with $inc/$min/$max. As with the energy totals, a sample at the time of the last one folded in is
+// a duplicate and is skipped, and an older one (possibly a copy of one already counted) has the
+// ECU's rollups rebuilt instead of being counted.
+//
+// Rollups hold calibrated values: after a recalibration, and for ECUs that have samples from
+// before rollups existed, the ECU's rollups are rebuilt from the stored samples on the next sweep.
+@Service
+public class TelemetryRollupService {
+    public static final int[] RESOLUTIONS_SECONDS = {1, 10, 60};
+
+    private final ECUSampleStore ecuSampleStore;
+    private final MongoTemplate mongoTemplate;
+    private final Map<BucketKey, Bucket> pending = new ConcurrentHashMap<>();
+    private final Set<String> pendingRebuilds = ConcurrentHashMap.newKeySet();
+    private final Set<String> checkedECUs = ConcurrentHashMap.newKeySet();
+    // ECUs being rebuilt, with the samples stored while the rebuild reads
+    private final Map<String, SampleSeries> parked = new HashMap<>();
+    // Latest timestamp folded in per ECU; guarded by parked, like the folds
+    private final Map<String, Long> lastFolded = new HashMap<>();
+    // Held for a whole flush, so a rebuild cannot remove an ECU's rollups while older buckets are in flight
+    private final Object flushLock = new Object();
+
+    public TelemetryRollupService(ECUSampleStore ecuSampleStore, MongoTemplate mongoTemplate) {
+        this.ecuSampleStore = ecuSampleStore;
+        this.mongoTemplate = mongoTemplate;
+        ecuSampleStore.addWriteListener(this::onStored);
+    }
+
+    // Picks the finest resolution that fits (from, to) in maxPoints buckets. Past the coarsest
+    // resolution, neighbouring minute buckets are merged into wider ones until the range fits.
+    public TelemetryRollupSeriesDTO getRollups(String ecuId, Instant from, Instant to, int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be at least 1");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("Range end must be after its start");
+        }
+        if (checkedECUs.add(ecuId)
+                && !mongoTemplate.exists(Query.query(Criteria.where("ecuId").is(ecuId)), TelemetryRollup.class)) {
+            pendingRebuilds.add(ecuId);
+        }
+        long rangeMillis = to.toEpochMilli() - from.toEpochMilli();
+        int resolution = RESOLUTIONS_SECONDS[RESOLUTIONS_SECONDS.length - 1];
+        for (int candidate : RESOLUTIONS_SECONDS) {
+            if (bucketsSpanned(rangeMillis, candidate * 1000L) <= maxPoints) {
+                resolution = candidate;
+                break;
+            }
+        }
+        Query query = Query.query(Criteria.where("ecuId").is(ecuId)
+                        .and("resolution").is(resolution)
+                        .and("bucketStart").gt(from.minusSeconds(resolution)).lt(to))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+        List<TelemetryRollup> points = mongoTemplate.find(query, TelemetryRollup.class);
+
+        long groupMillis = resolution * 1000L;
+        while (bucketsSpanned(rangeMillis, groupMillis) > maxPoints) {
+            groupMillis *= 2;
+        }
+        if (groupMillis != resolution * 1000L) {
+            points = merge(ecuId, points, groupMillis);
+        }
+        for (TelemetryRollup point : points) {
+            fillAverages(point);
+        }
+        return new TelemetryRollupSeriesDTO(ecuId, (int) (groupMillis / 1000), from, to, points);
+    }
+
+    // After a recalibration, since rollups hold calibrated values
+    public void rebuildECU(String ecuId) {
+        pendingRebuilds.add(ecuId);
+    }
+
+    private void onStored(String ecuId, String eventId, SampleSeries samples, int from, int to) {
+        synchronized (parked) {
+            SampleSeries parkedSamples = parked.get(ecuId);
+            if (parkedSamples != null) {
+                parkedSamples.addRange(samples, from, to);
+                return;
+            }
+            // Inside the lock, so a rebuild that starts now cannot miss these or see them twice
+            foldNewer(ecuId, samples, from, to);
+        }
+    }
+
+    // Folds the part of a time-ordered run that is newer than anything folded for the ECU so far
+    private void foldNewer(String ecuId, SampleSeries samples, int from, int to) {
+        Long last = lastFolded.get(ecuId);
+        int start = from;
+        while (last != null && start < to && samples.timestampAt(start) <= last) {
+            if (samples.timestampAt(start) < last) {
+                pendingRebuilds.add(ecuId);
+            }
+            start++;
+        }
+        if (start < to) {
+            fold(ecuId, samples, start, to, pending);
+            lastFolded.put(ecuId, samples.timestampAt(to - 1));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.rollups.flush-ms:1000}")
+    public void sweep() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("[ERROR] Could not flush telemetry rollups: " + e.getMessage());
+        }
+        for (String ecuId : pendingRebuilds) {
+            pendingRebuilds.remove(ecuId);
+            try {
+                rebuild(ecuId);
+            } catch (RuntimeException e) {
+                pendingRebuilds.add(ecuId);
+                System.err.println("[ERROR] Could not rebuild telemetry rollups for ECU " + ecuId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void flush() {
+        synchronized (flushLock) {
+            Map<BucketKey, Bucket> taken = new HashMap<>();
+            for (BucketKey key : pending.keySet()) {
+                Bucket bucket = pending.remove(key);
+                if (bucket != null) {
+                    taken.put(key, bucket);
+                }
+            }
+            try {
+                upsert(taken);
+            } catch (RuntimeException e) {
+                // Put the buckets back so the next sweep retries them; $inc makes a retry merge, not overwrite
+                for (Map.Entry<BucketKey, Bucket> entry : taken.entrySet()) {
+                    pending.merge(entry.getKey(), entry.getValue(), Bucket::merge);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Same approach as the statistics: read without blocking ingest, park samples stored meanwhile
+    // and fold in the ones the rebuild did not read
+    private void rebuild(String ecuId) {
+        synchronized (flushLock) {
+            synchronized (parked) {
+                parked.put(ecuId, new SampleSeries());
+                pending.keySet().removeIf(key -> key.ecuId.equals(ecuId));
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("ecuId").is(ecuId)), TelemetryRollup.class);
+        }
+        Map<BucketKey, Bucket> rebuilt = new HashMap<>();
+        SampleSeries samples = new SampleSeries(0);
+        try {
+            samples = ecuSampleStore.findAll(ecuId);
+            fold(ecuId, samples, 0, samples.size(), rebuilt);
+            synchronized (flushLock) {
+                upsert(rebuilt);
+            }
+        } finally {
+            // findAll is sorted; a parked sample is in it if it was stored before the read reached it
+            synchronized (parked) {
+                SampleSeries late = parked.remove(ecuId);
+                if (samples.isEmpty()) {
+                    lastFolded.remove(ecuId);
+                } else {
+                    lastFolded.put(ecuId, samples.timestampAt(samples.size() - 1));
+                }
+                late.sortByTimestamp();
+                for (int i = 0; i < late.size(); i++) {
+                    if (!samples.containsTimestamp(late.timestampAt(i))) {
+                        foldNewer(ecuId, late, i, i + 1);
+                    }
+                }
+            }
+        }
+        System.out.println("[INFO] Rebuilt telemetry rollups for ECU " + ecuId);
+    }
+
+    // Samples of one run are time-ordered, so consecutive samples share a bucket and each bucket
+    // is looked up once per run rather than once per sample. A repeated timestamp is a sample
+    // stored twice and is counted once.
+    private static void fold(String ecuId, SampleSeries samples, int from, int to, Map<BucketKey, Bucket> into) {
+        for (int resolution : RESOLUTIONS_SECONDS) {
+            long widthMillis = resolution * 1000L;
+            int start = from;
+            while (start < to) {
+                long bucketStart = Math.floorDiv(samples.timestampAt(start), widthMillis) * widthMillis;
+                int end = start + 1;
+                while (end < to && samples.timestampAt(end) >= bucketStart
+                        && samples.timestampAt(end) < bucketStart + widthMillis) {
+                    end++;
+                }
+                Bucket bucket = new Bucket();
+                for (int i = start; i < end; i++) {
+                    if (i == from || samples.timestampAt(i) != samples.timestampAt(i - 1)) {
+                        bucket.add(samples.voltageAt(i), samples.currentAt(i), samples.powerAt(i));
+                    }
+                }
+                into.merge(new BucketKey(ecuId, resolution, bucketStart), bucket, Bucket::merge);
+                start = end;
+            }
+        }
+    }
+
+    private void upsert(Map<BucketKey, Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TelemetryRollup.class);
+        for (Map.Entry<BucketKey, Bucket> entry : buckets.entrySet()) {
+            BucketKey key = entry.getKey();
+            Bucket bucket = entry.getValue();
+            Query query = Query.query(Criteria.where("ecuId").is(key.ecuId)
+                    .and("resolution").is(key.resolution)
+                    .and("bucketStart").is(Instant.ofEpochMilli(key.bucketStart)));
+            Update update = new Update()
+                    .inc("count", bucket.count)
+                    .inc("voltage.sum", bucket.voltageSum).min("voltage.min", bucket.voltageMin).max("voltage.max", bucket.voltageMax)
+                    .inc("current.sum", bucket.currentSum).min("current.min", bucket.currentMin).max("current.max", bucket.currentMax)
+                    .inc("power.sum", bucket.powerSum).min("power.min", bucket.powerMin).max("power.max", bucket.powerMax);
+            bulk.upsert(query, update);
+        }
+        bulk.execute();
+    }
+
+    // Combines stored buckets into groupMillis-wide ones aligned to the epoch
+    private static List<TelemetryRollup> merge(String ecuId, List<TelemetryRollup> points, long groupMillis) {
+        List<TelemetryRollup> merged = new ArrayList<>();
+        TelemetryRollup group = null;
+        for (TelemetryRollup point : points) {
+            long groupStart = Math.floorDiv(point.getBucketStart().toEpochMilli(), groupMillis) * groupMillis;
+            if (group == null || group.getBucketStart().toEpochMilli() != groupStart) {
+                group = new TelemetryRollup();
+                group.setEcuId(ecuId);
+                group.setResolution((int) (groupMillis / 1000));
+                group.setBucketStart(Instant.ofEpochMilli(groupStart));
+                merged.add(group);
+            }
+            group.setCount(group.getCount() + point.getCount());
+            mergeChannel(group.getVoltage(), point.getVoltage());
+            mergeChannel(group.getCurrent(), point.getCurrent());
+            mergeChannel(group.getPower(), point.getPower());
+        }
+        return merged;
+    }
+
+    private static void mergeChannel(ChannelRollup into, ChannelRollup other) {
+        into.setSum(into.getSum() + other.getSum());
+        if (other.getMin() != null && (into.getMin() == null || other.getMin() < into.getMin())) {
+            into.setMin(other.getMin());
+        }
+        if (other.getMax() != null && (into.getMax() == null || other.getMax() > into.getMax())) {
+            into.setMax(other.getMax());
+        }
+    }
+
+    private static void fillAverages(TelemetryRollup point) {
+        if (point.getCount() > 0) {
+            point.getVoltage().setAvg(point.getVoltage().getSum() / point.getCount());
+            point.getCurrent().setAvg(point.getCurrent().getSum() / point.getCount());
+            point.getPower().setAvg(point.getPower().getSum() / point.getCount());
+        }
+    }
+
+    private static long bucketsSpanned(long rangeMillis, long widthMillis) {
+        return rangeMillis / widthMillis + 1;
+    }
+
+    private static final class BucketKey {
+        private final String ecuId;
+        private final int resolution;
+        private final long bucketStart;
+
+        private BucketKey(String ecuId, int resolution, long bucketStart) {
+            this.ecuId = ecuId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return resolution == other.resolution && bucketStart == other.bucketStart && ecuId.equals(other.ecuId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ecuId, resolution, bucketStart);
+        }
+    }
+
+    private static final class Bucket {
+        private long count;
+        private double voltageSum = 0;
+        private double voltageMin = Double.POSITIVE_INFINITY;
+        private double voltageMax = Double.NEGATIVE_INFINITY;
+        private double currentSum = 0;
+        private double currentMin = Double.POSITIVE_INFINITY;
+        private double currentMax = Double.NEGATIVE_INFINITY;
+        private double powerSum = 0;
+        private double powerMin = Double.POSITIVE_INFINITY;
+        private double powerMax = Double.NEGATIVE_INFINITY;
+
+        private void add(double voltage, double current, double power) {
+            count++;
+            voltageSum += voltage;
+            voltageMin = Math.min(voltageMin, voltage);
+            voltageMax = Math.max(voltageMax, voltage);
+            currentSum += current;
+            currentMin = Math.min(currentMin, current);
+            currentMax = Math.max(currentMax, current);
+            powerSum += power;
+            powerMin = Math.min(powerMin, power);
+            powerMax = Math.max(powerMax, power);
+        }
+
+        private static Bucket merge(Bucket a, Bucket b) {
+            a.count += b.count;
+            a.voltageSum += b.voltageSum;
+            a.voltageMin = Math.min(a.voltageMin, b.voltageMin);
+            a.voltageMax = Math.max(a.voltageMax, b.voltageMax);
+            a.currentSum += b.currentSum;
+            a.currentMin = Math.min(a.currentMin, b.currentMin);
+            a.currentMax = Math.max(a.currentMax, b.currentMax);
+            a.powerSum += b.powerSum;
+            a.powerMin = Math.min(a.powerMin, b.powerMin);
+            a.powerMax = Math.max(a.powerMax, b.powerMax);
+            return a;
+        }
+    }
+}
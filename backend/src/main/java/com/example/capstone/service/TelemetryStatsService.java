@@ -0,0 +1,255 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.Event;
+import com.example.capstone.model.SampleSeries;
+import com.example.capstone.model.TelemetryStats;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Constant-memory summary statistics per ECU (all time) and per (ECU, event), updated as samples
+// are stored and persisted to telemetry_stats every telemetry.stats.persist-ms. Summary views
+// read these instead of pulling sample arrays.
+//
+// Statistics are rebuilt from the stored samples when there is no persisted state yet, when a
+// sample arrives older than the last one folded in (it may be a copy of one already counted) and,
+// for event statistics, when the event is saved. A sample at the same time as the last one is a
+// duplicate and is skipped, the same guard the energy totals use.
+@Service
+public class TelemetryStatsService extends AbstractMongoEventListener<Event> {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ECUSampleStore ecuSampleStore;
+    private final EventWindowIndex eventWindows;
+    private final MongoTemplate mongoTemplate;
+
+    public TelemetryStatsService(ECUSampleStore ecuSampleStore, EventWindowIndex eventWindows, MongoTemplate mongoTemplate) {
+        this.ecuSampleStore = ecuSampleStore;
+        this.eventWindows = eventWindows;
+        this.mongoTemplate = mongoTemplate;
+        ecuSampleStore.addWriteListener(this::onStored);
+    }
+
+    // eventId null for the ECU's all-time statistics
+    public TelemetryStats getStats(String ecuId, String eventId) {
+        Entry entry = get(ecuId, eventId);
+        if (entry.needsRebuild()) {
+            rebuild(entry);
+        }
+        return entry.snapshot();
+    }
+
+    // After a recalibration: every statistic of the ECU is recomputed on the next sweep, including
+    // ones that are only persisted
+    public void rebuildECU(String ecuId) {
+        for (Entry entry : entries.values()) {
+            if (entry.ecuId.equals(ecuId)) {
+                entry.markForRebuild();
+            }
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("ecuId").is(ecuId)), TelemetryStats.class);
+    }
+
+    private void onStored(String ecuId, String eventId, SampleSeries samples, int from, int to) {
+        get(ecuId, null).add(samples, from, to);
+        if (eventId != null) {
+            get(ecuId, eventId).add(samples, from, to);
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Event> saved) {
+        Event event = saved.getSource();
+        if (event.getId() == null || event.getEcuIds() == null) {
+            return;
+        }
+        for (String ecuId : event.getEcuIds()) {
+            get(ecuId, event.getId()).markForRebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.stats.persist-ms:10000}")
+    public void sweep() {
+        for (Entry entry : entries.values()) {
+            try {
+                if (entry.needsRebuild()) {
+                    rebuild(entry);
+                }
+                persist(entry);
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Could not update telemetry stats for ECU " + entry.ecuId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        for (Entry entry : entries.values()) {
+            persist(entry);
+        }
+    }
+
+    private Entry get(String ecuId, String eventId) {
+        return entries.computeIfAbsent(ecuId + "|" + eventId, key -> load(ecuId, eventId));
+    }
+
+    private Entry load(String ecuId, String eventId) {
+        Query query = Query.query(Criteria.where("ecuId").is(ecuId).and("eventId").is(eventId));
+        TelemetryStats stored = mongoTemplate.findOne(query, TelemetryStats.class);
+        Entry entry = new Entry(ecuId, eventId);
+        if (stored == null) {
+            entry.markForRebuild();
+        } else {
+            entry.stats = stored;
+        }
+        return entry;
+    }
+
+    // Same approach as the energy totals: read without holding the entry, park samples stored
+    // meanwhile and fold in the ones the rebuild did not read
+    private void rebuild(Entry entry) {
+        if (!entry.beginRebuild()) {
+            return;
+        }
+        TelemetryStats rebuilt = entry.emptyStats();
+        SampleSeries samples;
+        try {
+            if (entry.eventId == null) {
+                samples = ecuSampleStore.findAll(entry.ecuId);
+            } else {
+                EventWindowIndex.Window window = eventWindows.find(entry.ecuId, entry.eventId);
+                samples = window == null ? new SampleSeries(0)
+                        : ecuSampleStore.findRange(entry.ecuId, window.getStart(), window.getEnd());
+            }
+            // The read is sorted, so a sample stored twice shows up as a repeated timestamp
+            for (int i = 0; i < samples.size(); i++) {
+                if (i == 0 || samples.timestampAt(i) != samples.timestampAt(i - 1)) {
+                    rebuilt.add(samples.timestampAt(i), samples.voltageAt(i), samples.currentAt(i), samples.powerAt(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            entry.abortRebuild();
+            throw e;
+        }
+        entry.finishRebuild(rebuilt, samples);
+    }
+
+    private void persist(Entry entry) {
+        TelemetryStats snapshot = entry.takeSnapshotIfDirty();
+        if (snapshot == null) {
+            return;
+        }
+        snapshot.setUpdatedAt(Instant.now());
+        TelemetryStats saved = mongoTemplate.save(snapshot);
+        entry.setId(saved.getId());
+    }
+
+    private static final class Entry {
+        private final String ecuId;
+        private final String eventId;
+
+        private TelemetryStats stats;
+        private boolean dirty;
+        private boolean needsRebuild;
+        // Non-null while a rebuild is reading samples
+        private SampleSeries parked;
+
+        private Entry(String ecuId, String eventId) {
+            this.ecuId = ecuId;
+            this.eventId = eventId;
+            this.stats = emptyStats();
+        }
+
+        private TelemetryStats emptyStats() {
+            TelemetryStats empty = new TelemetryStats();
+            empty.setEcuId(ecuId);
+            empty.setEventId(eventId);
+            return empty;
+        }
+
+        private synchronized void add(SampleSeries samples, int from, int to) {
+            if (parked != null) {
+                parked.addRange(samples, from, to);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                fold(samples.timestampAt(i), samples.voltageAt(i), samples.currentAt(i), samples.powerAt(i));
+            }
+        }
+
+        private void fold(long timestamp, double voltage, double current, double power) {
+            Instant last = stats.getLastSampleAt();
+            if (last != null && timestamp <= last.toEpochMilli()) {
+                if (timestamp < last.toEpochMilli()) {
+                    needsRebuild = true;
+                }
+                return;
+            }
+            stats.add(timestamp, voltage, current, power);
+            dirty = true;
+        }
+
+        private synchronized TelemetryStats snapshot() {
+            return stats.copy();
+        }
+
+        private synchronized boolean needsRebuild() {
+            return needsRebuild;
+        }
+
+        private synchronized void markForRebuild() {
+            needsRebuild = true;
+        }
+
+        private synchronized void setId(String id) {
+            stats.setId(id);
+        }
+
+        private synchronized boolean beginRebuild() {
+            if (parked != null) {
+                return false;
+            }
+            parked = new SampleSeries();
+            needsRebuild = false;
+            return true;
+        }
+
+        private synchronized void abortRebuild() {
+            parked = null;
+            needsRebuild = true;
+        }
+
+        // read is what the rebuild read, sorted; a parked sample may be in it or not depending on
+        // whether it was stored before the read reached it. The ones it is missing are folded in,
+        // which marks the statistics for another rebuild if one is late.
+        private synchronized void finishRebuild(TelemetryStats rebuilt, SampleSeries read) {
+            rebuilt.setId(stats.getId());
+            stats = rebuilt;
+            SampleSeries late = parked;
+            parked = null;
+            late.sortByTimestamp();
+            for (int i = 0; i < late.size(); i++) {
+                if (!read.containsTimestamp(late.timestampAt(i))) {
+                    fold(late.timestampAt(i), late.voltageAt(i), late.currentAt(i), late.powerAt(i));
+                }
+            }
+            dirty = true;
+        }
+
+        private synchronized TelemetryStats takeSnapshotIfDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            return stats.copy();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleRun;
+import com.example.capstone.model.SampleSeries;
+
+import java.time.Instant;
+import java.util.List;
+
+// Where sample values live, selected by telemetry.storage.backend (see TelemetryStoreConfig).
+// ECUSampleStore sits in front of it and handles ordering, event tagging, calibration and write
+// listeners, so implementations only persist and read back nominal values.
+public interface TelemetryStore {
+
+    // Runs of one ECU are consecutive, share one series and are in timestamp order. Samples may
+    // be older than ones already stored for the ECU. May be called from several threads at once.
+    void write(List<SampleRun> runs);
+
+    // Samples strictly between from and to, ordered by timestamp
+    SampleSeries findRange(String ecuId, Instant from, Instant to);
+
+    SampleSeries findAll(String ecuId);
+
+    // Removes the samples strictly between from and to, once they have been archived
+    void deleteRange(String ecuId, Instant from, Instant to);
+
+    default void close() {
+    }
+}
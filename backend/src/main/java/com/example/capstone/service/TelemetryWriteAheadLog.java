@@ -0,0 +1,538 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleChunk;
+import com.example.capstone.model.SampleSeries;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only log on local disk in front of Mongo. A chunk is acknowledged once it is forced
+// into a memory-mapped segment file; a replayer thread drains the log into the database in
+// order and retries for as long as the database is unavailable. Anything left unreplayed is
+// picked up again from the checkpoint on the next start.
+//
+// Forcing is group-committed: appends only copy the record in under the lock, and a flusher
+// thread forces everything appended so far in one go and releases every submit waiting on it,
+// so concurrent ECUs share one disk flush instead of queueing for one each.
+//
+// Record layout: int payloadLength, int crc32(payload), payload. A zero length marks the end of
+// the written part of a segment. Payload: short ecuIdLength, ecuId (UTF-8), int count, then
+// count x (long timestamp, double voltage, double current, double power).
+//
+// A crash between the database write and the checkpoint update replays that batch again on the
+// next start. That batch lies in the segment the checkpoint points into, so after a restart the
+// records of that segment go through recoveryWriter, which skips samples already stored.
+public class TelemetryWriteAheadLog implements TelemetryIngestStage {
+
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int SAMPLE_BYTES = 32;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final long IDLE_PARK_MILLIS = 100;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5000;
+    private static final long SHUTDOWN_DRAIN_MILLIS = 10000;
+    private static final long FLUSH_RETRY_MILLIS = 100;
+
+    private final Path dir;
+    private final Consumer<List<SampleChunk>> writer;
+    private final Consumer<List<SampleChunk>> recoveryWriter;
+    private final int segmentBytes;
+    private final int maxBacklogChunks;
+    private final int maxBatchChunks;
+
+    // Oldest first; the last segment is the one being appended to
+    private final ConcurrentLinkedDeque<Segment> segments = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final Object appendLock = new Object();
+    private final Thread replayerThread;
+    private final Thread flusherThread;
+
+    private volatile boolean running = true;
+
+    // Records are numbered as they are appended; submits wait until forcedRecords reaches theirs
+    private volatile long appendedRecords;
+    private volatile long forcedRecords;
+    private final Object flushMonitor = new Object();
+    private final AtomicLong forces = new AtomicLong();
+
+    // Replayer position; only touched by the replayer thread after construction
+    private int replayPosition;
+    // Records of this segment below recoveredEnd were found on disk at startup and may already be stored
+    private long recoveredSegment = -1;
+    private int recoveredEnd;
+
+    public TelemetryWriteAheadLog(Path dir, Consumer<List<SampleChunk>> writer, int segmentBytes,
+                                  int maxBacklogChunks, int maxBatchChunks) throws IOException {
+        this(dir, writer, writer, segmentBytes, maxBacklogChunks, maxBatchChunks);
+    }
+
+    public TelemetryWriteAheadLog(Path dir, Consumer<List<SampleChunk>> writer, Consumer<List<SampleChunk>> recoveryWriter,
+                                  int segmentBytes, int maxBacklogChunks, int maxBatchChunks) throws IOException {
+        this.dir = dir;
+        this.writer = writer;
+        this.recoveryWriter = recoveryWriter;
+        this.segmentBytes = segmentBytes;
+        this.maxBacklogChunks = maxBacklogChunks;
+        this.maxBatchChunks = maxBatchChunks;
+        recover();
+        this.replayerThread = new Thread(this::runReplayer, "telemetry-wal-replayer");
+        this.replayerThread.start();
+        this.flusherThread = new Thread(this::runFlusher, "telemetry-wal-flusher");
+        this.flusherThread.start();
+    }
+
+    @Override
+    public void submit(SampleChunk chunk) {
+        if (backlog.get() >= maxBacklogChunks) {
+            throw new QueueFullException();
+        }
+        byte[] payload = encode(chunk);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+
+        long record;
+        synchronized (appendLock) {
+            // Checked under the lock, so the flusher's final pass covers every record appended
+            if (!running) {
+                throw new IllegalStateException("Telemetry ingest is shutting down");
+            }
+            Segment active = segments.peekLast();
+            if (active.buffer.capacity() - active.end < recordBytes) {
+                active = roll(recordBytes);
+            }
+            int position = active.end;
+            active.buffer.putInt(position + 4, (int) crc.getValue());
+            active.buffer.put(position + RECORD_HEADER_BYTES, payload);
+            // Length goes in last so a torn record never looks complete
+            active.buffer.putInt(position, payload.length);
+            active.end = position + recordBytes;
+            record = ++appendedRecords;
+        }
+        backlog.incrementAndGet();
+        // Replaying ahead of the force is fine: a record that reaches Mongo needs no WAL copy
+        LockSupport.unpark(replayerThread);
+        awaitForced(record);
+    }
+
+    private void awaitForced(long record) {
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+            boolean interrupted = false;
+            while (forcedRecords < record) {
+                if (!flusherThread.isAlive()) {
+                    throw new IllegalStateException("Telemetry WAL flusher stopped before the chunk was forced");
+                }
+                try {
+                    flushMonitor.wait(IDLE_PARK_MILLIS);
+                } catch (InterruptedException e) {
+                    // The record is already in the log; the ack still has to wait for the force
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Forces every record appended since the last pass, then releases the submits waiting on them.
+    // Keeps going after close() until the last appended record is forced.
+    private void runFlusher() {
+        while (true) {
+            synchronized (flushMonitor) {
+                while (forcedRecords == appendedRecords) {
+                    if (!running) {
+                        return;
+                    }
+                    try {
+                        flushMonitor.wait(IDLE_PARK_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+
+            long target;
+            List<Segment> dirty = new ArrayList<>();
+            List<int[]> ranges = new ArrayList<>();
+            synchronized (appendLock) {
+                target = appendedRecords;
+                for (Segment segment : segments) {
+                    if (segment.forcedEnd < segment.end) {
+                        dirty.add(segment);
+                        ranges.add(new int[] {segment.forcedEnd, segment.end});
+                    }
+                }
+            }
+            try {
+                for (int i = 0; i < dirty.size(); i++) {
+                    int[] range = ranges.get(i);
+                    dirty.get(i).buffer.force(range[0], range[1] - range[0]);
+                    dirty.get(i).forcedEnd = range[1];
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Could not force telemetry WAL, retrying in " + FLUSH_RETRY_MILLIS + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(FLUSH_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                continue;
+            }
+            forces.incrementAndGet();
+            synchronized (flushMonitor) {
+                forcedRecords = target;
+                flushMonitor.notifyAll();
+            }
+        }
+    }
+
+    // Number of group-commit passes so far, for tests
+    long getForceCount() {
+        return forces.get();
+    }
+
+    @Override
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    @Override
+    public int getCapacity() {
+        return maxBacklogChunks;
+    }
+
+    // Seals the active segment and starts the next one; called with appendLock held
+    private Segment roll(int recordBytes) {
+        Segment sealed = segments.peekLast();
+        try {
+            Segment next = openSegment(sealed.id + 1, Math.max(segmentBytes, recordBytes + 4));
+            segments.addLast(next);
+            sealed.sealed = true;
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create telemetry WAL segment", e);
+        }
+    }
+
+    private void runReplayer() {
+        List<SampleChunk> batch = new ArrayList<>(maxBatchChunks);
+        long backoff = IDLE_PARK_MILLIS;
+        while (running || backlog.get() > 0) {
+            Segment head = segments.peekFirst();
+            // sealed before end: the roll that seals a segment comes after its last append, so once
+            // sealed is seen, end is final. Read the other way round, an append and a roll landing in
+            // between would pair a stale end with sealed and skip the records past it.
+            boolean sealed = head.sealed;
+            int end = head.end;
+
+            if (replayPosition >= end) {
+                if (sealed && segments.size() > 1) {
+                    advanceSegment(head);
+                } else if (running) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(IDLE_PARK_MILLIS));
+                } else {
+                    break;
+                }
+                continue;
+            }
+
+            // Recovered records are batched on their own so only they pay for the duplicate check
+            boolean recovered = head.id == recoveredSegment && replayPosition < recoveredEnd;
+            int limit = recovered ? Math.min(end, recoveredEnd) : end;
+            int position = replayPosition;
+            while (position < limit && batch.size() < maxBatchChunks) {
+                int length = head.buffer.getInt(position);
+                batch.add(decode(head.buffer.slice(position + RECORD_HEADER_BYTES, length)));
+                position += RECORD_HEADER_BYTES + length;
+            }
+
+            try {
+                (recovered ? recoveryWriter : writer).accept(batch);
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Telemetry WAL replay of " + batch.size() + " chunks failed, retrying in "
+                        + backoff + " ms: " + e.getMessage());
+                batch.clear();
+                if (!running) {
+                    break;
+                }
+                // Sleep rather than park so new appends do not cut the backoff short
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+                continue;
+            }
+
+            backoff = IDLE_PARK_MILLIS;
+            replayPosition = position;
+            writeCheckpoint(head.id, replayPosition);
+            backlog.addAndGet(-batch.size());
+            batch.clear();
+        }
+    }
+
+    // The head segment has been fully replayed and a newer one exists
+    private void advanceSegment(Segment head) {
+        Segment next = head.next();
+        replayPosition = 0;
+        writeCheckpoint(next.id, 0);
+        segments.pollFirst();
+        head.close();
+        try {
+            Files.deleteIfExists(head.path);
+        } catch (IOException e) {
+            System.err.println("[ERROR] Could not delete replayed WAL segment " + head.path + ": " + e.getMessage());
+        }
+    }
+
+    // Stops accepting chunks and gives the replayer a bounded amount of time to drain the log;
+    // whatever is left stays on disk and is replayed on the next start
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            running = false;
+        }
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+        try {
+            flusherThread.join(SHUTDOWN_DRAIN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LockSupport.unpark(replayerThread);
+        try {
+            replayerThread.join(SHUTDOWN_DRAIN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (replayerThread.isAlive()) {
+            replayerThread.interrupt();
+        }
+        if (backlog.get() > 0) {
+            System.out.println("[INFO] Telemetry WAL closed with " + backlog.get() + " chunks left to replay on next start");
+        }
+        synchronized (appendLock) {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        long[] checkpoint = readCheckpoint();
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        int recovered = 0;
+        long lastId = checkpoint[0];
+        for (Path file : files) {
+            long id = segmentId(file);
+            if (id < checkpoint[0]) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            Segment segment = openSegment(id, 0);
+            int from = id == checkpoint[0] ? (int) checkpoint[1] : 0;
+            int[] scan = scan(segment.buffer, from);
+            segment.end = scan[0];
+            segment.forcedEnd = scan[0];
+            segment.sealed = true;
+            recovered += scan[1];
+            segments.addLast(segment);
+            lastId = id;
+        }
+
+        if (segments.isEmpty()) {
+            segments.addLast(openSegment(Math.max(lastId, 0), segmentBytes));
+        } else {
+            Segment last = segments.peekLast();
+            // Clear anything past the last valid record (a torn append) so it cannot be mistaken for data
+            for (int i = last.end; i < last.buffer.capacity(); i++) {
+                last.buffer.put(i, (byte) 0);
+            }
+            last.sealed = false;
+        }
+        Segment head = segments.peekFirst();
+        replayPosition = head.id == checkpoint[0] ? (int) Math.min(checkpoint[1], head.end) : 0;
+        recoveredSegment = head.id;
+        recoveredEnd = head.end;
+        backlog.set(recovered);
+        if (recovered > 0) {
+            System.out.println("[INFO] Telemetry WAL recovered " + recovered + " unreplayed chunks from " + dir);
+        }
+    }
+
+    // Returns {end of the last valid record, number of records between from and end}
+    private static int[] scan(ByteBuffer buffer, int from) {
+        int position = from;
+        int count = 0;
+        while (buffer.capacity() - position >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_BYTES) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                System.err.println("[ERROR] Telemetry WAL record at offset " + position + " failed its checksum, truncating");
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+            count++;
+        }
+        return new int[] {position, count};
+    }
+
+    private long[] readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return new long[] {0, 0};
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        return new long[] {buffer.getLong(), buffer.getLong()};
+    }
+
+    // Written to a temp file and moved into place so a crash never leaves a half-written checkpoint
+    private void writeCheckpoint(long segmentId, long position) {
+        ByteBuffer buffer = ByteBuffer.allocate(16).putLong(segmentId).putLong(position);
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(buffer.flip());
+                channel.force(true);
+            }
+            Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The database write already happened; a stale checkpoint only means a replay on restart
+            System.err.println("[ERROR] Could not write telemetry WAL checkpoint: " + e.getMessage());
+        }
+    }
+
+    // size 0 maps an existing segment at its current length
+    private Segment openSegment(long id, int size) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length = size > 0 ? size : channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        return new Segment(id, path, channel, buffer);
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Numbered chunks carry their session (length -1 when the ECU has none) and seq after the
+    // samples, so a replay can save the mark
+    private static byte[] encode(SampleChunk chunk) {
+        byte[] ecuId = chunk.getEcuId().getBytes(StandardCharsets.UTF_8);
+        byte[] session = chunk.getSessionToken() == null ? new byte[0] : chunk.getSessionToken().getBytes(StandardCharsets.UTF_8);
+        SampleSeries samples = chunk.getSamples();
+        int trailerBytes = chunk.getSeq() == null ? 0 : 2 + session.length + 8;
+        ByteBuffer buffer = ByteBuffer.allocate(2 + ecuId.length + 4 + samples.size() * SAMPLE_BYTES + trailerBytes);
+        buffer.putShort((short) ecuId.length).put(ecuId).putInt(samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            buffer.putLong(samples.timestampAt(i))
+                    .putDouble(samples.voltageAt(i))
+                    .putDouble(samples.currentAt(i))
+                    .putDouble(samples.powerAt(i));
+        }
+        if (chunk.getSeq() != null) {
+            buffer.putShort((short) (chunk.getSessionToken() == null ? -1 : session.length)).put(session).putLong(chunk.getSeq());
+        }
+        return buffer.array();
+    }
+
+    private static SampleChunk decode(ByteBuffer buffer) {
+        byte[] ecuId = new byte[buffer.getShort()];
+        buffer.get(ecuId);
+        int count = buffer.getInt();
+        SampleSeries samples = new SampleSeries(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(buffer.getLong(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+        if (!buffer.hasRemaining()) {
+            return new SampleChunk(new String(ecuId, StandardCharsets.UTF_8), samples);
+        }
+        short sessionLength = buffer.getShort();
+        byte[] session = new byte[Math.max(0, sessionLength)];
+        buffer.get(session);
+        return new SampleChunk(new String(ecuId, StandardCharsets.UTF_8), samples,
+                sessionLength < 0 ? null : new String(session, StandardCharsets.UTF_8), buffer.getLong());
+    }
+
+    private final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        // Everything below end is a complete record
+        private volatile int end;
+        // Everything below forcedEnd is on disk; only the flusher moves it
+        private volatile int forcedEnd;
+        // No more appends; the replayer may move on once it reaches end
+        private volatile boolean sealed;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private Segment next() {
+            boolean found = false;
+            for (Segment segment : segments) {
+                if (found) {
+                    return segment;
+                }
+                found = segment == this;
+            }
+            throw new IllegalStateException("No WAL segment after " + id);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("[ERROR] Could not close WAL segment " + path + ": " + e.getMessage());
+            }
+        }
+    }
+}
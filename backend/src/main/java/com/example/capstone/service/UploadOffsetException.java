@@ -0,0 +1,16 @@
+package com.example.capstone.service;
+
+// A ranged log upload that does not continue where the stored bytes end; reported as 409 with
+// the offset the client should resume from
+public class UploadOffsetException extends IllegalArgumentException {
+    private final long expectedOffset;
+
+    public UploadOffsetException(long expectedOffset, long actualOffset) {
+        super("Upload must resume at byte " + expectedOffset + ", got " + actualOffset);
+        this.expectedOffset = expectedOffset;
+    }
+
+    public long getExpectedOffset() {
+        return expectedOffset;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Single-pass parser for the firmware's JSON chunk body: [{"t": seconds, "v": volts, "c": amps}, ...].
+// Tokens go straight into a SampleSeries (timestamps in millis relative to the recording origin),
+// validating each sample as it is read instead of binding and converting DTOs.
+public class ECUChunkJsonParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static SampleSeries parse(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            return parse(parser);
+        } catch (JsonProcessingException e) {
+            throw new MalformedChunkException("Malformed JSON chunk: " + e.getOriginalMessage());
+        }
+    }
+
+    public static SampleSeries parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new MalformedChunkException("Chunk must be a JSON array of samples");
+        }
+        SampleSeries series = new SampleSeries();
+        int index = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new MalformedChunkException("Sample " + index + " must be an object");
+            }
+            double t = Double.NaN;
+            double v = Double.NaN;
+            double c = Double.NaN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "t" -> t = readNumber(parser, value, index, field);
+                    case "v" -> v = readNumber(parser, value, index, field);
+                    case "c" -> c = readNumber(parser, value, index, field);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (Double.isNaN(t) || Double.isNaN(v) || Double.isNaN(c)) {
+                throw new MalformedChunkException("Sample " + index + " must have numeric t, v and c");
+            }
+            series.add((long) (t * 1000), v, c, v * c);
+            index++;
+        }
+        // The firmware never sends an empty chunk, so one means the body was built wrong
+        if (index == 0) {
+            throw new MalformedChunkException("Chunk must contain at least one sample");
+        }
+        return series;
+    }
+
+    // The firmware formats values as strings ("12.34"), so numeric strings are accepted too
+    private static double readNumber(JsonParser parser, JsonToken value, int index, String field) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // fall through to the error below
+            }
+        }
+        throw new MalformedChunkException("Sample " + index + " has a non-numeric " + field);
+    }
+}
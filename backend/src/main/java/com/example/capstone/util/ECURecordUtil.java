@@ -0,0 +1,72 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Decodes the packed records the ECU firmware writes to flash (see compsys/newest/main.py):
+// 6 bytes each, little-endian uint16 centiseconds, uint16 raw voltage, uint16 raw current
+public class ECURecordUtil {
+
+    public static final int RECORD_SIZE = 6;
+
+    // Same ADC conversion the firmware applies before sending JSON. Samples are stored at this
+    // conversion whatever the ECU's calibration; see ECUCalibrationRegistry.
+    private static final double ADC_TO_VOLTS = 3.3 / 65535;
+    private static final double VOLTAGE_DIVIDER = 3.7;
+    public static final double NOMINAL_VOLTS_PER_COUNT = ADC_TO_VOLTS * VOLTAGE_DIVIDER;
+    public static final double NOMINAL_AMPS_PER_COUNT = ADC_TO_VOLTS;
+    // Centiseconds before the uint16 clock wraps
+    private static final long CLOCK_PERIOD = 65536;
+
+    // Timestamps in the returned series are millis relative to the ECU's recording origin
+    public static SampleSeries decode(ByteBuffer records) {
+        return decode(records, -1, 0, false);
+    }
+
+    // For a slice of a whole on-device log. The uint16 centisecond clock wraps every 655.36 s, so
+    // a clock that goes backwards counts as one more wrap. previousCentiseconds and wraps describe
+    // the record just before the slice (-1 and 0 at the start of the log); see countWraps.
+    public static SampleSeries decodeLogSegment(ByteBuffer records, int previousCentiseconds, long wraps) {
+        return decode(records, previousCentiseconds, wraps, true);
+    }
+
+    // Runs the clock through a log slice without decoding it: returns {last centiseconds, wraps}
+    // after the slice, for the segment that follows
+    public static long[] countWraps(ByteBuffer records, int previousCentiseconds, long wraps) {
+        ByteBuffer buffer = records.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int previous = previousCentiseconds;
+        for (int i = 0; i + RECORD_SIZE <= buffer.limit(); i += RECORD_SIZE) {
+            int centiseconds = Short.toUnsignedInt(buffer.getShort(i));
+            if (centiseconds < previous) {
+                wraps++;
+            }
+            previous = centiseconds;
+        }
+        return new long[] {previous, wraps};
+    }
+
+    private static SampleSeries decode(ByteBuffer records, int previousCentiseconds, long wraps, boolean unwrap) {
+        if (records.remaining() % RECORD_SIZE != 0) {
+            throw new MalformedChunkException("Binary chunk length must be a multiple of " + RECORD_SIZE + " bytes");
+        }
+        ByteBuffer buffer = records.slice().order(ByteOrder.LITTLE_ENDIAN);
+        SampleSeries series = new SampleSeries(buffer.remaining() / RECORD_SIZE);
+        int previous = previousCentiseconds;
+        while (buffer.hasRemaining()) {
+            int centiseconds = Short.toUnsignedInt(buffer.getShort());
+            int rawVoltage = Short.toUnsignedInt(buffer.getShort());
+            int rawCurrent = Short.toUnsignedInt(buffer.getShort());
+            if (unwrap && centiseconds < previous) {
+                wraps++;
+            }
+            previous = centiseconds;
+
+            double voltage = rawVoltage * NOMINAL_VOLTS_PER_COUNT;
+            double current = rawCurrent * NOMINAL_AMPS_PER_COUNT;
+            series.add((wraps * CLOCK_PERIOD + centiseconds) * 10L, voltage, current, voltage * current);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntToDoubleFunction;
+
+// Columnar encoding for a run of telemetry samples, after Facebook's Gorilla TSDB paper:
+// timestamps as delta-of-delta, then one column per value series.
+//
+// Stored values are ADC counts times the nominal conversion (or decimals from JSON bodies), so
+// their mantissas are noise to an XOR encoder. A column whose values are all exact multiples of
+// a known step is stored as the integer steps instead, delta and zigzag encoded, and power is
+// left out when it is exactly voltage * current. Columns that fit neither fall back to Gorilla
+// XOR, so every series round-trips bit for bit.
+//
+// Layout: FORMAT_MARKER, version byte, int count, timestamp column, then a mode byte and the
+// data for voltage, current and power. Blobs written before the marker existed start with the
+// count and hold three XOR columns; they are still decoded.
+public class GorillaCodec {
+
+    private static final long FORMAT_MARKER = 0xFFFFFFFFL;
+    private static final int VERSION = 2;
+
+    private static final int COLUMN_XOR = 0;
+    // value = steps * factor
+    private static final int COLUMN_STEPS_TIMES = 1;
+    // value = steps / factor, for decimals such as 12.34 = 1234 / 100.0
+    private static final int COLUMN_STEPS_OVER = 2;
+    // power only: voltage * current
+    private static final int COLUMN_PRODUCT = 3;
+
+    private static final int[] STEP_MODES = {COLUMN_STEPS_TIMES, COLUMN_STEPS_TIMES, COLUMN_STEPS_OVER, COLUMN_STEPS_OVER};
+    private static final double[] STEP_FACTORS = {
+            ECURecordUtil.NOMINAL_VOLTS_PER_COUNT, ECURecordUtil.NOMINAL_AMPS_PER_COUNT, 100.0, 1000.0};
+    // Steps stay well inside the range a double holds exactly
+    private static final double MAX_STEPS = 1L << 52;
+
+    public static byte[] encode(SampleSeries series) {
+        int count = series.size();
+        BitWriter out = new BitWriter(count + 32);
+        out.write(FORMAT_MARKER, 32);
+        out.write(VERSION, 8);
+        out.write(count, 32);
+        if (count > 0) {
+            writeTimestamps(out, series, count);
+            writeColumn(out, series::voltageAt, count);
+            writeColumn(out, series::currentAt, count);
+            if (isProduct(series, count)) {
+                out.write(COLUMN_PRODUCT, 8);
+            } else {
+                writeColumn(out, series::powerAt, count);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static SampleSeries decode(byte[] data) {
+        BitReader in = new BitReader(data);
+        long first = in.read(32);
+        boolean legacy = first != FORMAT_MARKER;
+        if (!legacy) {
+            int version = (int) in.read(8);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown sample encoding version " + version);
+            }
+        }
+        int count = (int) (legacy ? first : in.read(32));
+        SampleSeries series = new SampleSeries(count);
+        if (count > 0) {
+            long[] timestamps = new long[count];
+            double[] voltage = new double[count];
+            double[] current = new double[count];
+            double[] power = new double[count];
+            readTimestamps(in, timestamps, count);
+            if (legacy) {
+                readValues(in, voltage, count);
+                readValues(in, current, count);
+                readValues(in, power, count);
+            } else {
+                readColumn(in, voltage, count);
+                readColumn(in, current, count);
+                if (!readColumn(in, power, count)) {
+                    for (int i = 0; i < count; i++) {
+                        power[i] = voltage[i] * current[i];
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                series.add(timestamps[i], voltage[i], current[i], power[i]);
+            }
+        }
+        return series;
+    }
+
+    private static boolean isProduct(SampleSeries series, int count) {
+        for (int i = 0; i < count; i++) {
+            if (Double.doubleToRawLongBits(series.powerAt(i))
+                    != Double.doubleToRawLongBits(series.voltageAt(i) * series.currentAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeColumn(BitWriter out, IntToDoubleFunction values, int count) {
+        for (int candidate = 0; candidate < STEP_FACTORS.length; candidate++) {
+            int mode = STEP_MODES[candidate];
+            double factor = STEP_FACTORS[candidate];
+            if (fitsSteps(values, count, mode, factor)) {
+                out.write(mode, 8);
+                out.write(Double.doubleToRawLongBits(factor), 64);
+                writeSteps(out, values, count, mode, factor);
+                return;
+            }
+        }
+        out.write(COLUMN_XOR, 8);
+        writeValues(out, values, count);
+    }
+
+    // False for a COLUMN_PRODUCT column, which the caller fills in from voltage and current
+    private static boolean readColumn(BitReader in, double[] values, int count) {
+        int mode = (int) in.read(8);
+        if (mode == COLUMN_PRODUCT) {
+            return false;
+        }
+        if (mode == COLUMN_XOR) {
+            readValues(in, values, count);
+            return true;
+        }
+        double factor = Double.longBitsToDouble(in.read(64));
+        readSteps(in, values, count, mode, factor);
+        return true;
+    }
+
+    // Only when converting back reproduces every value exactly, including the sign of zero
+    private static boolean fitsSteps(IntToDoubleFunction values, int count, int mode, double factor) {
+        for (int i = 0; i < count; i++) {
+            double value = values.applyAsDouble(i);
+            double steps = mode == COLUMN_STEPS_TIMES ? value / factor : value * factor;
+            if (!(Math.abs(steps) < MAX_STEPS)) {
+                return false;
+            }
+            if (Double.doubleToRawLongBits(fromSteps(Math.round(steps), mode, factor)) != Double.doubleToRawLongBits(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double fromSteps(long steps, int mode, double factor) {
+        return mode == COLUMN_STEPS_TIMES ? steps * factor : steps / factor;
+    }
+
+    // Neighbouring readings are usually a few steps apart, so most deltas land in the short classes
+    private static void writeSteps(BitWriter out, IntToDoubleFunction values, int count, int mode, double factor) {
+        long prev = 0;
+        for (int i = 0; i < count; i++) {
+            double value = values.applyAsDouble(i);
+            long steps = Math.round(mode == COLUMN_STEPS_TIMES ? value / factor : value * factor);
+            long delta = steps - prev;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            if (zigzag == 0) {
+                out.write(0b0, 1);
+            } else if (zigzag < (1L << 6)) {
+                out.write(0b10, 2);
+                out.write(zigzag, 6);
+            } else if (zigzag < (1L << 9)) {
+                out.write(0b110, 3);
+                out.write(zigzag, 9);
+            } else if (zigzag < (1L << 13)) {
+                out.write(0b1110, 4);
+                out.write(zigzag, 13);
+            } else {
+                out.write(0b1111, 4);
+                out.write(zigzag, 64);
+            }
+            prev = steps;
+        }
+    }
+
+    private static void readSteps(BitReader in, double[] values, int count, int mode, double factor) {
+        long prev = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag;
+            if (in.read(1) == 0) {
+                zigzag = 0;
+            } else if (in.read(1) == 0) {
+                zigzag = in.read(6);
+            } else if (in.read(1) == 0) {
+                zigzag = in.read(9);
+            } else if (in.read(1) == 0) {
+                zigzag = in.read(13);
+            } else {
+                zigzag = in.read(64);
+            }
+            prev += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = fromSteps(prev, mode, factor);
+        }
+    }
+
+    // Samples arrive at a near-fixed rate, so the delta-of-delta is almost always 0 (one bit)
+    private static void writeTimestamps(BitWriter out, SampleSeries series, int count) {
+        out.write(series.timestampAt(0), 64);
+        long prevDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = series.timestampAt(i) - series.timestampAt(i - 1);
+            long dod = delta - prevDelta;
+            if (dod == 0) {
+                out.write(0b0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                out.write(0b10, 2);
+                out.write(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.write(0b110, 3);
+                out.write(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.write(0b1110, 4);
+                out.write(dod, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(dod, 64);
+            }
+            prevDelta = delta;
+        }
+    }
+
+    private static void readTimestamps(BitReader in, long[] timestamps, int count) {
+        timestamps[0] = in.read(64);
+        long prevDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long dod;
+            if (in.read(1) == 0) {
+                dod = 0;
+            } else if (in.read(1) == 0) {
+                dod = in.readSigned(7);
+            } else if (in.read(1) == 0) {
+                dod = in.readSigned(9);
+            } else if (in.read(1) == 0) {
+                dod = in.readSigned(12);
+            } else {
+                dod = in.read(64);
+            }
+            prevDelta += dod;
+            timestamps[i] = timestamps[i - 1] + prevDelta;
+        }
+    }
+
+    // Consecutive readings share sign, exponent and high mantissa bits, so the XOR is mostly
+    // zeros; only the meaningful middle bits are stored, reusing the previous window when it fits
+    private static void writeValues(BitWriter out, IntToDoubleFunction values, int count) {
+        long prev = Double.doubleToRawLongBits(values.applyAsDouble(0));
+        out.write(prev, 64);
+        int prevLeading = -1;
+        int prevTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values.applyAsDouble(i));
+            long xor = bits ^ prev;
+            if (xor == 0) {
+                out.write(0b0, 1);
+            } else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                    out.write(0b10, 2);
+                    out.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    out.write(0b11, 2);
+                    out.write(leading, 5);
+                    // 64 meaningful bits is stored as 0, it never occurs otherwise
+                    out.write(meaningful == 64 ? 0 : meaningful, 6);
+                    out.write(xor >>> trailing, meaningful);
+                    prevLeading = leading;
+                    prevTrailing = trailing;
+                }
+            }
+            prev = bits;
+        }
+    }
+
+    private static void readValues(BitReader in, double[] values, int count) {
+        long prev = in.read(64);
+        values[0] = Double.longBitsToDouble(prev);
+        int prevLeading = 0;
+        int prevTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.read(1) == 1) {
+                if (in.read(1) == 1) {
+                    prevLeading = (int) in.read(5);
+                    int meaningful = (int) in.read(6);
+                    if (meaningful == 0) {
+                        meaningful = 64;
+                    }
+                    prevTrailing = 64 - prevLeading - meaningful;
+                }
+                long xor = in.read(64 - prevLeading - prevTrailing) << prevTrailing;
+                prev ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(prev);
+        }
+    }
+
+    private static class BitWriter {
+        private ByteBuffer buffer;
+        private long pending;
+        private int pendingBits;
+
+        BitWriter(int initialCapacity) {
+            this.buffer = ByteBuffer.allocate(Math.max(initialCapacity, 16));
+        }
+
+        // Writes the low `bits` bits of value, most significant first
+        void write(long value, int bits) {
+            while (bits > 0) {
+                int take = Math.min(bits, 64 - pendingBits);
+                long chunk = take == 64 ? value : (value >>> (bits - take)) & ((1L << take) - 1);
+                pending = take == 64 ? chunk : (pending << take) | chunk;
+                pendingBits += take;
+                bits -= take;
+                if (pendingBits == 64) {
+                    ensureCapacity(8);
+                    buffer.putLong(pending);
+                    pending = 0;
+                    pendingBits = 0;
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            int tailBytes = (pendingBits + 7) / 8;
+            ensureCapacity(tailBytes);
+            long aligned = pendingBits == 0 ? 0 : pending << (64 - pendingBits);
+            for (int i = 0; i < tailBytes; i++) {
+                buffer.put((byte) (aligned >>> (56 - 8 * i)));
+            }
+            byte[] out = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(out);
+            return out;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (buffer.remaining() < extra) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+
+    private static class BitReader {
+        private final byte[] data;
+        private long position;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                int bit = (data[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+                value = (value << 1) | bit;
+                position++;
+            }
+            return value;
+        }
+
+        long readSigned(int bits) {
+            long value = read(bits);
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
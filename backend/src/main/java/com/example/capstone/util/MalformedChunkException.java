@@ -0,0 +1,8 @@
+package com.example.capstone.util;
+
+// A telemetry chunk body that could not be decoded; reported to the device as 400
+public class MalformedChunkException extends IllegalArgumentException {
+    public MalformedChunkException(String message) {
+        super(message);
+    }
+}
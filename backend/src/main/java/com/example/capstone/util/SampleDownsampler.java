@@ -0,0 +1,72 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+
+// Largest-Triangle-Three-Buckets decimation for charts. Keeps the first and last sample and one
+// sample per bucket in between: the one forming the largest triangle with the sample kept from
+// the previous bucket and the average of the next bucket, measured on power over time. That
+// favours peaks and turning points, so the chart keeps its shape at a fraction of the points.
+// Selected samples are copied whole, so voltage and current stay consistent with the power shown.
+public class SampleDownsampler {
+
+    public static final int MIN_POINTS = 3;
+
+    // samples must be sorted by timestamp; returned unchanged when already small enough
+    public static SampleSeries lttb(SampleSeries samples, int maxPoints) {
+        if (maxPoints < MIN_POINTS) {
+            throw new IllegalArgumentException("maxPoints must be at least " + MIN_POINTS);
+        }
+        int size = samples.size();
+        if (size <= maxPoints) {
+            return samples;
+        }
+        SampleSeries result = new SampleSeries(maxPoints);
+        result.addRange(samples, 0, 1);
+
+        // The samples between the first and last are split into maxPoints - 2 equal buckets
+        double bucketSize = (double) (size - 2) / (maxPoints - 2);
+        int previous = 0;
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // Average of the next bucket; the last sample stands in for it after the final bucket
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            if (bucket == maxPoints - 3) {
+                nextStart = size - 1;
+                nextEnd = size;
+            }
+            double avgTime = 0;
+            double avgPower = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgTime += samples.timestampAt(i);
+                avgPower += samples.powerAt(i);
+            }
+            avgTime /= nextEnd - nextStart;
+            avgPower /= nextEnd - nextStart;
+
+            // Times relative to the previous kept sample keep the products well inside double precision
+            long originTime = samples.timestampAt(previous);
+            double originPower = samples.powerAt(previous);
+            double nextTime = avgTime - originTime;
+            double nextPower = avgPower - originPower;
+            double maxArea = -1;
+            int selected = start;
+            for (int i = start; i < end; i++) {
+                double time = samples.timestampAt(i) - originTime;
+                double power = samples.powerAt(i) - originPower;
+                double area = Math.abs(time * nextPower - nextTime * power);
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+            result.addRange(samples, selected, selected + 1);
+            previous = selected;
+        }
+
+        result.addRange(samples, size - 1, size);
+        return result;
+    }
+}
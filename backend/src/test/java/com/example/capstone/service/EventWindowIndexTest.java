@@ -0,0 +1,105 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.Event;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Events reach the index through the same mapping events Mongo publishes; the database is only
+// read by rebuild, so it is mocked there
+class EventWindowIndexTest {
+
+	private static final long START = 1_700_000_000_000L;
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final EventWindowIndex index = new EventWindowIndex(mongoTemplate);
+
+	@Test
+	void boundsAreExclusive() {
+		save(event("race", START, START + 1000, "ecu1"));
+		assertNull(index.eventAt("ecu1", START));
+		assertEquals("race", index.eventAt("ecu1", START + 1));
+		assertEquals("race", index.eventAt("ecu1", START + 999));
+		assertNull(index.eventAt("ecu1", START + 1000));
+		assertNull(index.eventAt("ecu2", START + 500));
+	}
+
+	@Test
+	void lastStartedWinsWhenWindowsOverlap() {
+		save(event("endurance", START, START + 10_000, "ecu1"));
+		save(event("sprint", START + 2000, START + 4000, "ecu1"));
+		assertEquals("endurance", index.eventAt("ecu1", START + 1000));
+		assertEquals("sprint", index.eventAt("ecu1", START + 3000));
+		// Once the later window has ended the earlier one applies again
+		assertEquals("endurance", index.eventAt("ecu1", START + 4000));
+		assertEquals("endurance", index.eventAt("ecu1", START + 9000));
+	}
+
+	@Test
+	void sampleAtAnotherWindowsBoundaryBelongsToTheOneContainingIt() {
+		save(event("heat1", START, START + 1000, "ecu1"));
+		save(event("heat2", START + 1000, START + 2000, "ecu1"));
+		assertEquals("heat1", index.eventAt("ecu1", START + 999));
+		assertNull(index.eventAt("ecu1", START + 1000));
+		assertEquals("heat2", index.eventAt("ecu1", START + 1001));
+	}
+
+	@Test
+	void removesDeletedEvents() {
+		save(event("race", START, START + 1000, "ecu1"));
+		save(event("qualifying", START - 5000, START - 1000, "ecu1"));
+		index.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", "race"), Event.class, "events"));
+		assertNull(index.eventAt("ecu1", START + 500));
+		assertNull(index.find("ecu1", "race"));
+		assertEquals("qualifying", index.eventAt("ecu1", START - 2000));
+	}
+
+	@Test
+	void rebuildDropsEventsNoLongerInTheDatabase() {
+		save(event("race", START, START + 1000, "ecu1"));
+		Event moved = event("final", START + 5000, START + 6000, "ecu1", "ecu2");
+		when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(List.of(moved));
+		index.rebuild();
+		assertNull(index.eventAt("ecu1", START + 500));
+		assertEquals("final", index.eventAt("ecu1", START + 5500));
+		assertEquals("final", index.eventAt("ecu2", START + 5500));
+		assertEquals(Instant.ofEpochMilli(START + 5000), index.find("ecu2", "final").getStart());
+	}
+
+	@Test
+	void movesWindowWhenEventIsSavedAgain() {
+		Event race = event("race", START, START + 1000, "ecu1");
+		save(race);
+		race.setStartTime(Instant.ofEpochMilli(START + 3000));
+		race.setEndTime(Instant.ofEpochMilli(START + 4000));
+		save(race);
+		assertNull(index.eventAt("ecu1", START + 500));
+		assertEquals("race", index.eventAt("ecu1", START + 3500));
+	}
+
+	private void save(Event event) {
+		index.onAfterSave(new AfterSaveEvent<>(event, new Document(), "events"));
+	}
+
+	private static Event event(String id, long start, long end, String... ecuIds) {
+		Event event = new Event();
+		event.setId(id);
+		event.setEcuIds(List.of(ecuIds));
+		event.setStartTime(Instant.ofEpochMilli(start));
+		event.setEndTime(Instant.ofEpochMilli(end));
+		return event;
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.capstone.service;
+
+import com.example.capstone.model.SampleChunk;
+import com.example.capstone.model.SampleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares one write per chunk against the group-commit pipeline, using a fake sink that
+// charges a fixed round-trip cost per write call (roughly a local Mongo insertMany)
+class TelemetryIngestPipelineBenchmarkTest {
+
+	private static final int CHUNKS = 400;
+	private static final int SAMPLES_PER_CHUNK = 50;
+	private static final long ROUND_TRIP_MILLIS = 2;
+
+	@Test
+	void batchingBeatsPerChunkWrites() throws Exception {
+		AtomicInteger written = new AtomicInteger();
+		AtomicInteger writes = new AtomicInteger();
+		Consumer<List<SampleChunk>> sink = batch -> {
+			writes.incrementAndGet();
+			sleep(ROUND_TRIP_MILLIS);
+			for (SampleChunk chunk : batch) {
+				written.addAndGet(chunk.getSamples().size());
+			}
+		};
+		List<SampleChunk> chunks = new ArrayList<>();
+		for (int i = 0; i < CHUNKS; i++) {
+			chunks.add(chunk("ecu" + (i % 20)));
+		}
+
+		long start = System.nanoTime();
+		for (SampleChunk chunk : chunks) {
+			sink.accept(List.of(chunk));
+		}
+		long perChunkNanos = System.nanoTime() - start;
+		assertEquals(CHUNKS * SAMPLES_PER_CHUNK, written.getAndSet(0));
+		writes.set(0);
+
+		start = System.nanoTime();
+		TelemetryIngestPipeline pipeline = new TelemetryIngestPipeline(sink, CHUNKS, 1, 256);
+		List<Thread> producers = new ArrayList<>();
+		for (int p = 0; p < 8; p++) {
+			int offset = p;
+			Thread producer = new Thread(() -> {
+				for (int i = offset; i < CHUNKS; i += 8) {
+					pipeline.submit(chunks.get(i));
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		pipeline.close();
+		long pipelineNanos = System.nanoTime() - start;
+		assertEquals(CHUNKS * SAMPLES_PER_CHUNK, written.get());
+
+		System.out.printf("per-chunk writes: %.1f chunks/s, group commit: %.1f chunks/s%n",
+				CHUNKS / (perChunkNanos / 1e9), CHUNKS / (pipelineNanos / 1e9));
+		// Timing depends on the machine, so only the batching itself is asserted
+		assertTrue(writes.get() * 4 < CHUNKS, "expected chunks to share writes, got " + writes.get() + " writes");
+	}
+
+	@Test
+	void failedWritesAreRetriedNotDropped() throws Exception {
+		AtomicInteger written = new AtomicInteger();
+		AtomicInteger failuresLeft = new AtomicInteger(3);
+		Consumer<List<SampleChunk>> sink = batch -> {
+			if (failuresLeft.getAndDecrement() > 0) {
+				throw new IllegalStateException("database unavailable");
+			}
+			for (SampleChunk chunk : batch) {
+				written.addAndGet(chunk.getSamples().size());
+			}
+		};
+		TelemetryIngestPipeline pipeline = new TelemetryIngestPipeline(sink, 16, 0, 16);
+		pipeline.submit(chunk("ecu0"));
+		pipeline.close();
+		assertEquals(SAMPLES_PER_CHUNK, written.get());
+	}
+
+	private static SampleChunk chunk(String ecuId) {
+		SampleSeries samples = new SampleSeries(SAMPLES_PER_CHUNK);
+		for (int i = 0; i < SAMPLES_PER_CHUNK; i++) {
+			samples.add(i * 20L, 48.0, 10.0, 480.0);
+		}
+		return new SampleChunk(ecuId, samples);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
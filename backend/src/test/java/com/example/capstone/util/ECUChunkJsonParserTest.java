@@ -0,0 +1,60 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Every malformed body must surface as MalformedChunkException (a 400 for the device), never as
+// a bare Jackson or number format error
+class ECUChunkJsonParserTest {
+
+	@Test
+	void parsesNumbersAndNumericStrings() throws IOException {
+		SampleSeries samples = parse("[{\"t\": 1.5, \"v\": 48, \"c\": 10.5}, {\"t\": \"2.25\", \"v\": \" 47.5\", \"c\": \"10\", \"x\": [1, 2]}]");
+		assertEquals(2, samples.size());
+		assertEquals(1500, samples.timestampAt(0));
+		assertEquals(48 * 10.5, samples.powerAt(0));
+		assertEquals(2250, samples.timestampAt(1));
+		assertEquals(47.5, samples.voltageAt(1));
+		assertEquals(475.0, samples.powerAt(1));
+	}
+
+	@Test
+	void rejectsTruncatedArray() {
+		assertMalformed("[{\"t\": 1, \"v\": 48, \"c\": 10}, {\"t\": 2, \"v\"");
+		assertMalformed("[{\"t\": 1, \"v\": 48, \"c\": 10}");
+		assertMalformed("[");
+	}
+
+	@Test
+	void rejectsWrongFieldTypes() {
+		assertMalformed("[{\"t\": \"soon\", \"v\": 48, \"c\": 10}]");
+		assertMalformed("[{\"t\": 1, \"v\": true, \"c\": 10}]");
+		assertMalformed("[{\"t\": 1, \"v\": 48, \"c\": null}]");
+		assertMalformed("[{\"t\": 1, \"v\": 48, \"c\": {\"value\": 10}}]");
+		assertMalformed("[{\"t\": 1, \"v\": 48}]");
+		assertMalformed("[[1, 48, 10]]");
+	}
+
+	@Test
+	void rejectsEmptyArrayAndNonArrayBodies() {
+		assertMalformed("[]");
+		assertMalformed("");
+		assertMalformed("{\"t\": 1, \"v\": 48, \"c\": 10}");
+		assertMalformed("not json");
+	}
+
+	private static void assertMalformed(String body) {
+		assertThrows(MalformedChunkException.class, () -> parse(body), body);
+	}
+
+	private static SampleSeries parse(String body) throws IOException {
+		return ECUChunkJsonParser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Round trips must be bit-exact whatever the values; compression only matters for the shapes
+// the ingest path actually stores (ADC counts at the nominal conversion, 2-decimal JSON values)
+class GorillaCodecTest {
+
+	private static final long START = 1_700_000_000_000L;
+
+	@Test
+	void roundTripsRawCountSeries() {
+		Random random = new Random(1);
+		for (int size : new int[]{0, 1, 2, 50, 6000}) {
+			SampleSeries series = rawCounts(random, size);
+			assertSame(series, GorillaCodec.decode(GorillaCodec.encode(series)));
+		}
+	}
+
+	@Test
+	void roundTripsRandomizedSeries() {
+		Random random = new Random(2);
+		double[] specials = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e300, -1e-300};
+		for (int round = 0; round < 2000; round++) {
+			SampleSeries series = new SampleSeries();
+			long timestamp = START + random.nextInt(1_000_000);
+			int size = random.nextInt(200);
+			for (int i = 0; i < size; i++) {
+				timestamp += random.nextInt(5) == 0 ? random.nextInt(100_000) - 50_000 : 10;
+				double voltage;
+				switch (random.nextInt(4)) {
+					case 0 -> voltage = random.nextInt(65536) * ECURecordUtil.NOMINAL_VOLTS_PER_COUNT;
+					case 1 -> voltage = random.nextInt(100_000) / 100.0;
+					case 2 -> voltage = specials[random.nextInt(specials.length)];
+					default -> voltage = random.nextGaussian() * 1000;
+				}
+				double current = random.nextInt(65536) * ECURecordUtil.NOMINAL_AMPS_PER_COUNT;
+				double power = random.nextBoolean() ? voltage * current : random.nextDouble();
+				series.add(timestamp, voltage, current, power);
+			}
+			assertSame(series, GorillaCodec.decode(GorillaCodec.encode(series)));
+		}
+	}
+
+	@Test
+	void storesRawCountsCompactly() {
+		Random random = new Random(3);
+		for (int size : new int[]{50, 6000}) {
+			SampleSeries series = rawCounts(random, size);
+			double bytesPerSample = (double) GorillaCodec.encode(series).length / size;
+			System.out.printf("%d raw-count samples: %.2f bytes/sample%n", size, bytesPerSample);
+			assertTrue(bytesPerSample < 5, "expected under 5 bytes/sample, got " + bytesPerSample);
+		}
+	}
+
+	// The firmware's 100 Hz samples: ticks with the odd 1 ms jitter, ADC counts wandering by a few steps
+	private static SampleSeries rawCounts(Random random, int size) {
+		SampleSeries series = new SampleSeries(size);
+		int voltageCounts = 40_000;
+		int currentCounts = 9_000;
+		long timestamp = START;
+		for (int i = 0; i < size; i++) {
+			voltageCounts = Math.max(0, Math.min(65535, voltageCounts + random.nextInt(41) - 20));
+			currentCounts = Math.max(0, Math.min(65535, currentCounts + random.nextInt(201) - 100));
+			timestamp += random.nextInt(10) == 0 ? 11 : 10;
+			double voltage = voltageCounts * ECURecordUtil.NOMINAL_VOLTS_PER_COUNT;
+			double current = currentCounts * ECURecordUtil.NOMINAL_AMPS_PER_COUNT;
+			series.add(timestamp, voltage, current, voltage * current);
+		}
+		return series;
+	}
+
+	private static void assertSame(SampleSeries expected, SampleSeries actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.timestampAt(i), actual.timestampAt(i));
+			assertEquals(Double.doubleToRawLongBits(expected.voltageAt(i)), Double.doubleToRawLongBits(actual.voltageAt(i)));
+			assertEquals(Double.doubleToRawLongBits(expected.currentAt(i)), Double.doubleToRawLongBits(actual.currentAt(i)));
+			assertEquals(Double.doubleToRawLongBits(expected.powerAt(i)), Double.doubleToRawLongBits(actual.powerAt(i)));
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.capstone.util;
+
+import com.example.capstone.model.SampleSeries;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Series sample every 10 ms. The spike series derives voltage and current from the index, so the
+// kept spike can be checked to have been copied whole.
+class SampleDownsamplerTest {
+
+	private static final long START = 1_700_000_000_000L;
+
+	@Test
+	void returnsInputWhenSmallEnough() {
+		SampleSeries series = flat(100);
+		assertSame(series, SampleDownsampler.lttb(series, 100));
+		assertSame(series, SampleDownsampler.lttb(series, 500));
+	}
+
+	@Test
+	void rejectsFewerThanThreePoints() {
+		assertThrows(IllegalArgumentException.class, () -> SampleDownsampler.lttb(flat(100), 2));
+	}
+
+	@Test
+	void keepsFirstLastAndOneBucketAtThreePoints() {
+		SampleSeries series = flat(1000);
+		SampleSeries result = SampleDownsampler.lttb(series, 3);
+		assertEquals(3, result.size());
+		assertEquals(START, result.timestampAt(0));
+		assertEquals(START + 999 * 10, result.timestampAt(2));
+		assertTrue(result.timestampAt(1) > result.timestampAt(0) && result.timestampAt(1) < result.timestampAt(2));
+	}
+
+	@Test
+	void keepsFirstAndLastSamples() {
+		SampleSeries series = flat(10_000);
+		for (int maxPoints : new int[]{3, 4, 17, 500, 9999}) {
+			SampleSeries result = SampleDownsampler.lttb(series, maxPoints);
+			assertEquals(maxPoints, result.size());
+			assertEquals(series.timestampAt(0), result.timestampAt(0));
+			assertEquals(series.timestampAt(series.size() - 1), result.timestampAt(result.size() - 1));
+			for (int i = 1; i < result.size(); i++) {
+				assertTrue(result.timestampAt(i) > result.timestampAt(i - 1));
+			}
+		}
+	}
+
+	@Test
+	void keepsSpike() {
+		SampleSeries series = new SampleSeries(10_000);
+		for (int i = 0; i < 10_000; i++) {
+			double power = i == 6543 ? 5000.0 : 480.0;
+			series.add(START + i * 10L, 48.0 + i, 10.0 + i, power);
+		}
+		SampleSeries result = SampleDownsampler.lttb(series, 50);
+		int spike = -1;
+		for (int i = 0; i < result.size(); i++) {
+			if (result.powerAt(i) == 5000.0) {
+				spike = i;
+			}
+		}
+		assertTrue(spike > 0, "the spike was dropped");
+		assertEquals(START + 6543 * 10L, result.timestampAt(spike));
+		assertEquals(48.0 + 6543, result.voltageAt(spike));
+		assertEquals(10.0 + 6543, result.currentAt(spike));
+	}
+
+	private static SampleSeries flat(int size) {
+		SampleSeries series = new SampleSeries(size);
+		for (int i = 0; i < size; i++) {
+			series.add(START + i * 10L, 48.0, 10.0, 480.0);
+		}
+		return series;
+	}
+}
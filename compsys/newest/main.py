@@ -40,6 +40,24 @@ stop_sampling = False
 # server base – assigned once we get on Wi-Fi
 server_ip = ""
 
+# upload flow control, updated from the server's X-Ingest-* headers (see ../INGEST_PROTOCOL.md)
+DEFAULT_CHUNK_SIZE = 50
+MAX_CHUNK_SIZE = 200
+next_chunk_size = DEFAULT_CHUNK_SIZE
+pacing_ms = 100
+
+# upload session, kept across send passes: only a reboot or a 409 starts a new one. Registering
+# resets the server's seq numbering, so re-registering with chunks already acked in the file would
+# store them again. sent_offset is how far into FILENAME the server has acked.
+session_token = None
+registered = False
+next_seq = 0
+sent_offset = 0
+
+# send flash records as-is (application/octet-stream) and let the server convert and calibrate
+# the ADC counts; False sends the older JSON body converted here
+SEND_RAW_COUNTS = True
+
 # timestamp origin
 SCRIPT_START = ticks_ms()
 
@@ -97,14 +115,24 @@ def flush_ringbuffer_to_file():
     gc.collect()
 
 
-def read_binary_chunk(chunk_size=50):
+def read_binary_chunk(start):
+    """
+    Yields (end_offset, chunk) for the records from byte offset start on
+    """
     rec_size = 6  # each record is 6 bytes
     try:
         with open(FILENAME, "rb") as f:
+            f.seek(start)
+            offset = start
             while True:
-                raw = f.read(rec_size * chunk_size)
+                # re-read per chunk so the server's latest advice applies
+                raw = f.read(rec_size * next_chunk_size)
                 if not raw:
                     break
+                offset += len(raw)
+                if SEND_RAW_COUNTS:
+                    yield offset, raw
+                    continue
                 n = len(raw) // rec_size
                 lst = []
                 for i in range(n):
@@ -117,11 +145,25 @@ def read_binary_chunk(chunk_size=50):
                         "c": f"{c:.2f}",
                         "t": f"{t_s:.2f}"
                     })
-                yield lst
+                yield offset, lst
     except Exception as e:
         print("❌ failed to unpack chunk:", e)
         return
 
+def apply_ingest_advice(resp):
+    global next_chunk_size, pacing_ms
+    headers = resp.headers or {}
+    size = headers.get("X-Ingest-Chunk-Size")
+    pacing = headers.get("X-Ingest-Pacing-Ms")
+    if size:
+        next_chunk_size = max(1, min(MAX_CHUNK_SIZE, int(size)))
+    if pacing:
+        pacing_ms = int(pacing)
+    if resp.status_code == 429:
+        retry_after = headers.get("Retry-After")
+        if retry_after:
+            pacing_ms = max(pacing_ms, int(retry_after) * 1000)
+
 # — IRQ SAMPLER + SCHEDULE —──────────────────────────────────────
 def _sample_cb(_):
     micropython.schedule(_handle_sample, 0)
@@ -159,7 +201,7 @@ timer.init(freq=200, mode=Timer.PERIODIC, callback=_sample_cb)
 
 # — ASYNC TASKS —────────────────────────────────────────────────
 async def send_task():
-    global stop_sampling
+    global stop_sampling, session_token, registered, next_seq, sent_offset
     while not stop_sampling:
         flush_ringbuffer_to_file()
 
@@ -167,19 +209,57 @@ async def send_task():
             await try_connect_wifi()
         else:
             try:
-                current_ticks = ticks_diff(ticks_ms(), SCRIPT_START)
-                ep_reg  = f"http://{server_ip}:8080/api/ecus/register/{SERIAL_NUMBER}/{current_ticks}"
-                urequests.post(ep_reg).close()
-
-                # Send in chunks
-                for chunk in read_binary_chunk(chunk_size=50):
+                if not registered:
+                    current_ticks = ticks_diff(ticks_ms(), SCRIPT_START)
+                    ep_reg  = f"http://{server_ip}:8080/api/ecus/register/{SERIAL_NUMBER}/{current_ticks}"
+                    resp = urequests.post(ep_reg)
+                    # session token ties the chunks below to this registration's time origin
+                    session_token = (resp.headers or {}).get("X-ECU-Session")
+                    resp.close()
+                    registered = True
+                    next_seq = 0
+                session_headers = {"X-ECU-Session": session_token} if session_token else {}
+
+                # Send in chunks, numbered so the server ignores chunks it already has, starting
+                # after the last acked one. Chunk size and the delay between chunks follow the
+                # server's advice.
+                for end_offset, chunk in read_binary_chunk(sent_offset):
                     if not chunk:
                         break
-                    ep_bulk = f"http://{server_ip}:8080/api/ecus/bulk/{SERIAL_NUMBER}"
-                    urequests.post(ep_bulk, json=chunk).close()
-                    await asyncio.sleep(0.1)  # small delay to avoid flooding
+                    ep_bulk = f"http://{server_ip}:8080/api/ecus/bulk/{SERIAL_NUMBER}?seq={next_seq}"
+                    for attempt in range(3):
+                        try:
+                            if SEND_RAW_COUNTS:
+                                headers = dict(session_headers)
+                                headers["Content-Type"] = "application/octet-stream"
+                                resp = urequests.post(ep_bulk, data=chunk, headers=headers)
+                            else:
+                                resp = urequests.post(ep_bulk, json=chunk, headers=session_headers)
+                            apply_ingest_advice(resp)
+                            status = resp.status_code
+                            resp.close()
+                        except Exception:
+                            if attempt == 2:
+                                raise
+                            await asyncio.sleep(0.2)  # retrying the same seq is safe
+                            continue
+                        if status == 409:
+                            registered = False
+                            raise Exception("session replaced")  # register again on the next pass
+                        if status >= 500:
+                            raise Exception("server error")  # same seq again on the next pass
+                        if status != 429:
+                            break
+                        if attempt == 2:
+                            raise Exception("server busy")
+                        await asyncio.sleep_ms(pacing_ms)  # backlog full, resend the same seq
+                    # acked (or rejected as malformed, which resending will not fix)
+                    sent_offset = end_offset
+                    next_seq += 1
+                    await asyncio.sleep_ms(pacing_ms)
 
                 clear_local_storage()
+                sent_offset = 0
             except Exception as e:
                 print("❌ send failed:", e)
 
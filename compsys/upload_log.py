@@ -0,0 +1,70 @@
+"""
+Upload a whole ECU log after a race (see INGEST_PROTOCOL.md), resuming if interrupted.
+
+    python3 upload_log.py <server> <serialNumber> recorded_data.bin [uploadId]
+
+Pass the uploadId printed by an earlier run to resume that upload, or to retry its import if it
+failed.
+"""
+import os
+import sys
+import time
+
+import requests
+
+PART_BYTES = 1024 * 1024
+
+
+def main():
+    server, serial, path = sys.argv[1:4]
+    upload_id = sys.argv[4] if len(sys.argv) > 4 else None
+    base = f"http://{server}:8080/api/ecus/uploads"
+    size = os.path.getsize(path)
+
+    if upload_id is None:
+        upload = requests.post(f"{base}/{serial}", params={"totalBytes": size}).json()
+        upload_id = upload["id"]
+        print("upload id:", upload_id)
+
+    upload = requests.get(f"{base}/{upload_id}").json()
+    if upload["status"] == "FAILED":
+        # the bytes are all there; import the segments that did not make it
+        requests.post(f"{base}/{upload_id}/retry").raise_for_status()
+    offset = upload["receivedBytes"]
+    with open(path, "rb") as f:
+        while offset < size:
+            f.seek(offset)
+            part = f.read(PART_BYTES)
+            headers = {
+                "Content-Type": "application/octet-stream",
+                "Content-Range": f"bytes {offset}-{offset + len(part) - 1}/{size}",
+            }
+            try:
+                resp = requests.put(f"{base}/{upload_id}", data=part, headers=headers)
+            except requests.RequestException as e:
+                print("upload interrupted, resuming:", e)
+                time.sleep(1)
+                offset = requests.get(f"{base}/{upload_id}").json()["receivedBytes"]
+                continue
+            if resp.status_code == 409:
+                offset = int(resp.headers["X-Upload-Offset"])
+                continue
+            resp.raise_for_status()
+            offset = resp.json()["receivedBytes"]
+            print(f"sent {offset}/{size} bytes")
+
+    while True:
+        upload = requests.get(f"{base}/{upload_id}").json()
+        print(f"{upload['status']}: {upload['parsedSegments']}/{upload['totalSegments']} segments,"
+              f" {upload['insertedSamples']} samples")
+        if upload["status"] in ("COMPLETE", "FAILED", "EXPIRED"):
+            if upload.get("error"):
+                print("error:", upload["error"])
+            if upload["status"] == "FAILED":
+                print(f"retry with: python3 upload_log.py {server} {serial} {path} {upload_id}")
+            break
+        time.sleep(1)
+
+
+if __name__ == "__main__":
+    main()
@@ -5,7 +5,7 @@ import TeamPointsChart from "../components/TeamPointsChart";
 import RecentEvents from "../components/RecentEvents";
 import { getAllTeams } from "../services/teamService";
 import Spinner from "../components/Spinner";
-import { getECUs } from "../services/ecuService";
+import { getECUSummaries } from "../services/ecuService";
 import { getAllCompetitions } from "../services/competitionService";
 import { getAllEvents } from "../services/eventService";
 
@@ -26,7 +26,7 @@ const Dashboard = () => {
   useEffect(() => {
     const fetchECUCount = async () => {
       try {
-        const ecus = await getECUs();
+        const ecus = await getECUSummaries();
         setMonitorCount(ecus.length);
         const activeMonitors = ecus.filter((ecu) => ecu.vehicleId).length;
         setActiveMonitors(activeMonitors);
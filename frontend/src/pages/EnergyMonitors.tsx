@@ -1,19 +1,20 @@
 import { useState, useEffect } from "react"
 import { useNavigate } from "react-router-dom"
-import { getECUs, getECUById } from "../services/ecuService"
+import { getECUSummaries, getFleetHealth } from "../services/ecuService"
 import { getVehicleById } from "../services/vehicleService"
 import { getTeamById } from "../services/teamService"
-import { ECU } from "../types/ecu"
+import { ECUHealth, ECUSummary } from "../types/ecu"
 import { Zap, Battery } from "lucide-react"
 
 const EnergyMonitors = () => {
-  const [ecus, setECUs] = useState<ECU[]>([])
+  const [ecus, setECUs] = useState<ECUSummary[]>([])
   const [ecuDetails, setEcuDetails] = useState<{ [ecuId: string]: { vehicle: any; team: any } | null }>({})
+  const [health, setHealth] = useState<{ [ecuId: string]: ECUHealth }>({})
 
   useEffect(() => {
     const fetchECUs = async () => {
       try {
-        const ecus = await getECUs()
+        const ecus = await getECUSummaries()
         setECUs(ecus)
       } catch (error) {
         console.error("Error fetching ECUs:", error)
@@ -22,14 +23,32 @@ const EnergyMonitors = () => {
     fetchECUs()
   }, [])
 
-  const fetchVehicleAndTeam = async (ecuId: string) => {
+  // Live values come from the server's fleet health registry instead of each ECU's full status list
+  useEffect(() => {
+    const fetchHealth = async () => {
+      try {
+        const entries = await getFleetHealth()
+        const byEcu: { [ecuId: string]: ECUHealth } = {}
+        entries.forEach((entry) => {
+          if (entry.ecuId) byEcu[entry.ecuId] = entry
+        })
+        setHealth(byEcu)
+      } catch (error) {
+        console.error("Error fetching ECU health:", error)
+      }
+    }
+    fetchHealth()
+    const interval = setInterval(fetchHealth, 5000)
+    return () => clearInterval(interval)
+  }, [])
+
+  const fetchVehicleAndTeam = async (ecu: ECUSummary) => {
     try {
-      const ecuObj = await getECUById(ecuId)
       let vehicle = null
       let team = null
 
-      if (ecuObj?.vehicleId) {
-        vehicle = await getVehicleById(ecuObj.vehicleId)
+      if (ecu.vehicleId) {
+        vehicle = await getVehicleById(ecu.vehicleId)
         if (vehicle?.teamId) {
           team = await getTeamById(vehicle.teamId)
         }
@@ -48,7 +67,7 @@ const EnergyMonitors = () => {
       const details: { [ecuId: string]: { vehicle: any; team: any } | null } = {};
       await Promise.all(
         ecus.map(async (ecu) => {
-          const data = await fetchVehicleAndTeam(ecu.id);
+          const data = await fetchVehicleAndTeam(ecu);
           details[ecu.id] = data;
         })
       );
@@ -63,7 +82,8 @@ const EnergyMonitors = () => {
         <h1 className="text-2xl font-bold">Energy Monitors / Aroturuki Pungao</h1>
       </div>
       {ecus.map((ecu) => {
-        const latestStatus = ecu.ecuStatusList?.[ecu.ecuStatusList.length - 1];
+        const live = health[ecu.id];
+        const latestStatus = live?.lastSampleAt ? live : null;
         const details = ecuDetails[ecu.id];
         return (
           <div key={ecu.id} className="bg-dark-200 rounded-xl overflow-hidden border border-dark-100">
@@ -117,7 +137,17 @@ const EnergyMonitors = () => {
                 </div>
                 <div className="flex justify-between text-sm">
                   <span className="text-light-500">Last Sync:</span>
-                  <span className="font-medium">{latestStatus ? new Date(latestStatus.timestamp).toLocaleString() : "--"}</span>
+                  <span className="font-medium">{live?.lastSeenAt ? new Date(live.lastSeenAt).toLocaleString() : "--"}</span>
+                </div>
+                <div className="flex justify-between text-sm">
+                  <span className="text-light-500">Rate:</span>
+                  <span className="font-medium">{live ? `${live.samplesPerSecond.toFixed(1)} samples/s` : "--"}</span>
+                </div>
+                <div className="flex justify-between text-sm">
+                  <span className="text-light-500">Lag / Errors:</span>
+                  <span className="font-medium">
+                    {live ? `${live.ingestLagMillis != null ? `${live.ingestLagMillis} ms` : "--"} / ${live.chunkErrors}` : "--"}
+                  </span>
                 </div>
               </div>
             </div>
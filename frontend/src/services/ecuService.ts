@@ -1,5 +1,6 @@
 import api from "../lib/api";
-import { ECU } from "../types/ecu";
+import { ECU, ECUHealth, ECUSummary, TelemetryRollupSeries } from "../types/ecu";
+import { ECUStatus } from "../types/ecustatus";
 
 
 export const getECUById = async (ecuId: string): Promise<ECU> => {
@@ -7,7 +8,33 @@ export const getECUById = async (ecuId: string): Promise<ECU> => {
   return response.data;
 };
 
+// maxPoints asks the server to decimate the event for a chart of about that many points wide
+export const getECUStatusByEvent = async (ecuId: string, eventId: string, maxPoints?: number): Promise<ECUStatus[]> => {
+  const response = await api.get(`/api/ecus/${ecuId}/getStatusByEvent/${eventId}`, {
+    params: maxPoints ? { maxPoints } : {},
+  });
+  return response.data;
+};
+
 export const getECUs = async (): Promise<ECU[]> => {
   const response = await api.get("/api/ecus");
   return response.data;
 };
+
+// For lists and counts: getECUs also returns every ECU's full status list
+export const getECUSummaries = async (): Promise<ECUSummary[]> => {
+  const response = await api.get("/api/ecus/summaries");
+  return response.data;
+};
+
+// Live per-ECU health kept by the server; a few hundred bytes per ECU, cheap to poll
+export const getFleetHealth = async (): Promise<ECUHealth[]> => {
+  const response = await api.get("/api/ecus/health");
+  return response.data;
+};
+
+// Min/max/avg per bucket for overview charts; the server picks the bucket width to fit maxPoints
+export const getECURollupsByEvent = async (ecuId: string, eventId: string, maxPoints = 1000): Promise<TelemetryRollupSeries> => {
+  const response = await api.get(`/api/ecus/${ecuId}/rollups/${eventId}`, { params: { maxPoints } });
+  return response.data;
+};
@@ -9,3 +9,49 @@ import { ECUStatus } from "./ecustatus";
         updatedAt: Date;
     }
 
+    // One entry of GET /api/ecus/summaries: an ECU without its status list
+    export interface ECUSummary {
+        id: string;
+        serialNumber: string;
+        vehicleId: string | null;
+    }
+
+    // One entry of GET /api/ecus/health
+    export interface ECUHealth {
+        serialNumber: string;
+        ecuId: string | null;
+        sessionStartedAt: string | null;
+        lastSeenAt: string | null;
+        samplesPerSecond: number;
+        ingestLagMillis: number | null;
+        chunkErrors: number;
+        lastSampleAt: string | null;
+        voltage: number | null;
+        current: number | null;
+        power: number | null;
+    }
+
+    export interface ChannelRollup {
+        min: number;
+        max: number;
+        sum: number;
+        avg: number;
+    }
+
+    export interface TelemetryRollup {
+        bucketStart: string;
+        resolution: number;
+        count: number;
+        voltage: ChannelRollup;
+        current: ChannelRollup;
+        power: ChannelRollup;
+    }
+
+    // GET /api/ecus/{ecuId}/rollups and /rollups/{eventId}
+    export interface TelemetryRollupSeries {
+        ecuId: string;
+        resolutionSeconds: number;
+        from: string;
+        to: string;
+        points: TelemetryRollup[];
+    }